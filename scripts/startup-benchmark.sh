@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+# Время от запуска JVM до первого успешного (2xx) ответа.
+#
+#   scripts/startup-benchmark.sh [runs] [url] -- <java-аргументы>
+#
+# Примеры:
+#   scripts/startup-benchmark.sh 5 http://localhost:8081/api/users -- -jar target/user-service-spring-boot3-1.0.0.jar
+#   scripts/startup-benchmark.sh 5 http://localhost:8081/api/users -- \
+#       -XX:SharedArchiveFile=target/cds/app.jsa -Dspring.aot.enabled=true \
+#       -jar target/cds/user-service-spring-boot3-1.0.0-cds.jar
+#
+# Нужны запущенные PostgreSQL (и Kafka — иначе события уйдут в spill-файл) и SHARD_NODE_ID (например, 0).
+set -euo pipefail
+
+RUNS=${1:-5}
+URL=${2:-http://localhost:8081/api/users}
+shift $(( $# < 2 ? $# : 2 ))
+[[ "${1:-}" == "--" ]] && shift
+JAVA_ARGS=("$@")
+if [[ ${#JAVA_ARGS[@]} -eq 0 ]]; then
+    JAVA_ARGS=(-jar target/user-service-spring-boot3-1.0.0.jar)
+fi
+
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-120}
+results=()
+
+for run in $(seq 1 "$RUNS"); do
+    start=$(date +%s%N)
+    java "${JAVA_ARGS[@]}" > "target/startup-benchmark-$run.log" 2>&1 &
+    pid=$!
+
+    elapsed=""
+    while kill -0 "$pid" 2>/dev/null; do
+        status=$(curl -s -o /dev/null -w '%{http_code}' "$URL" || true)
+        if [[ "$status" == 2* ]]; then
+            elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+            break
+        fi
+        if (( ($(date +%s%N) - start) / 1000000000 > TIMEOUT_SECONDS )); then
+            break
+        fi
+        sleep 0.05
+    done
+
+    kill "$pid" 2>/dev/null || true
+    wait "$pid" 2>/dev/null || true
+
+    if [[ -z "$elapsed" ]]; then
+        echo "run $run: no 2xx from $URL, see target/startup-benchmark-$run.log" >&2
+        exit 1
+    fi
+    echo "run $run: first 2xx after ${elapsed} ms"
+    results+=("$elapsed")
+done
+
+sorted=($(printf '%s\n' "${results[@]}" | sort -n))
+echo "min ${sorted[0]} ms, median ${sorted[$(( ${#sorted[@]} / 2 ))]} ms, max ${sorted[-1]} ms"
@@ -4,12 +4,40 @@ import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Contact;
 import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.info.License;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class OpenAPIConfig {
 
+    /**
+     * springdoc и этот конфиг создаются при первом запросе к /v3/api-docs или Swagger UI.
+     * Остальные бины (DataSource, JPA, Kafka) остаются eager: ошибки конфигурации видны на старте.
+     */
+    @Bean
+    public static BeanFactoryPostProcessor openApiLazyInit() {
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                String factoryBean = definition.getFactoryBeanName();
+                boolean declaredByOpenApi = factoryBean != null
+                        && beanFactory.containsBeanDefinition(factoryBean)
+                        && isOpenApi(beanFactory.getBeanDefinition(factoryBean).getBeanClassName());
+                if (declaredByOpenApi || isOpenApi(definition.getBeanClassName())) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    // Имя класса конфигурации после CGLIB-обработки получает суффикс, поэтому startsWith
+    private static boolean isOpenApi(String className) {
+        return className != null
+                && (className.startsWith("org.springdoc.") || className.startsWith(OpenAPIConfig.class.getName()));
+    }
+
     @Bean
     public OpenAPI userServiceOpenAPI() {
         return new OpenAPI()
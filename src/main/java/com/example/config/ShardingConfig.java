@@ -0,0 +1,78 @@
+package com.example.config;
+
+import com.example.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean
+    public DataSource dataSource(ShardingProperties sharding,
+                                 DataSourceProperties dataSourceProperties,
+                                 Environment environment) {
+        List<ShardingProperties.Shard> shards = sharding.getShards().isEmpty()
+                ? List.of(singleShard(dataSourceProperties))
+                : sharding.getShards();
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            DataSource shardDataSource = shardDataSource(shards.get(i), sharding, environment);
+            if (sharding.isInitSchema()) {
+                DatabasePopulatorUtils.execute(
+                        new ResourceDatabasePopulator(new ClassPathResource("db/sharding/schema.sql")),
+                        shardDataSource);
+            }
+            targets.put(i, shardDataSource);
+        }
+
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        // Без выбранного шарда (старт Hibernate) используется шард 0
+        routing.setDefaultTargetDataSource(targets.get(0));
+        return routing;
+    }
+
+    private static ShardingProperties.Shard singleShard(DataSourceProperties dataSourceProperties) {
+        ShardingProperties.Shard shard = new ShardingProperties.Shard();
+        shard.setName(ShardingProperties.DEFAULT_SHARD);
+        shard.setUrl(dataSourceProperties.determineUrl());
+        shard.setUsername(dataSourceProperties.determineUsername());
+        shard.setPassword(dataSourceProperties.determinePassword());
+        return shard;
+    }
+
+    private static DataSource shardDataSource(ShardingProperties.Shard shard,
+                                              ShardingProperties sharding,
+                                              Environment environment) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(shard.getUrl())
+                .username(shard.getUsername())
+                .password(shard.getPassword())
+                .build();
+        // Настройки пула из spring.datasource.hikari применяются к каждому шарду
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        if (shard.getUrl().startsWith("jdbc:postgresql:")) {
+            sharding.getPostgresqlProperties().forEach(dataSource::addDataSourceProperty);
+        }
+        dataSource.setPoolName("users-shard-" + shard.getName());
+        return dataSource;
+    }
+}
\ No newline at end of file
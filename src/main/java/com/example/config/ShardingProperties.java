@@ -0,0 +1,68 @@
+package com.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Пользователь и запись индекса email живут на шарде, который кольцо выбирает по имени шарда.
+ * Переименование, добавление или удаление шарда меняет владельца части ключей (~1/N):
+ * пока эти строки не перенесены, такие пользователи отдают 404. Порядок перестановки:
+ * остановить запись, скопировать users, user_tombstones и user_email_index на шарды,
+ * которые выбирает новое кольцо, раскатить новый список шардов и удалить старые копии.
+ * <p>
+ * Переход с одной таблицы users на несколько шардов: email, id и запросы по email идут
+ * только через user_email_index. Для одного шарда индекс заполняет EmailIndexBackfill при старте
+ * (и schema.sql). Для нескольких шардов каждую пару (email, id) из старой таблицы нужно записать
+ * в user_email_index на шарде shardForEmail(email) с pending = false, а строку users — на шард
+ * shardForUserId(id), до переключения трафика; иначе существующие пользователи отдают 404 по email.
+ */
+@Data
+@ConfigurationProperties(prefix = "sharding")
+public class ShardingProperties {
+
+    // Имя единственного шарда, когда список shards пуст
+    public static final String DEFAULT_SHARD = "default";
+
+    // Пустой список — один шард из spring.datasource
+    private List<Shard> shards = new ArrayList<>();
+
+    // Виртуальных узлов на шард в кольце консистентного хеширования
+    private int virtualNodes = 128;
+
+    // Номер экземпляра сервиса для генерации id (0..1023), у каждого экземпляра свой; обязателен
+    private Integer nodeId;
+
+    // Создавать таблицы на всех шардах из db/sharding/schema.sql
+    private boolean initSchema = false;
+
+    // Свойства драйвера, которые добавляются только к шардам на PostgreSQL
+    private Map<String, String> postgresqlProperties = new HashMap<>();
+
+    // Потоков для параллельного чтения с шардов; 0 — шарды × spring.datasource.hikari.maximum-pool-size
+    private int scatterThreads = 0;
+
+    public int getShardCount() {
+        return Math.max(1, shards.size());
+    }
+
+    public List<String> getShardNames() {
+        return shards.isEmpty()
+                ? List.of(DEFAULT_SHARD)
+                : shards.stream().map(Shard::getName).collect(Collectors.toList());
+    }
+
+    @Data
+    public static class Shard {
+        // Стабильное имя шарда: по нему строится кольцо, менять только вместе с переносом данных
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.example.config;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Бинарные представления (CBOR / Smile) для внутренних сервисов.
+ * Выбираются через заголовок Accept и не содержат HAL-ссылок.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    // Builder из автоконфигурации Boot (prototype): spring.jackson.* и модули те же, что у JSON
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+                || converter instanceof MappingJackson2SmileHttpMessageConverter);
+
+        converters.add(new MappingJackson2CborHttpMessageConverter(compact(new CBORFactory())));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(compact(new SmileFactory())));
+    }
+
+    private ObjectMapper compact(JsonFactory factory) {
+        return objectMapperBuilder.getObject()
+                .factory(factory)
+                .mixIn(RepresentationModel.class, IgnoreLinksMixin.class)
+                .build();
+    }
+
+    @JsonIgnoreProperties({"links"})
+    private abstract static class IgnoreLinksMixin {
+    }
+}
\ No newline at end of file
@@ -1,5 +1,8 @@
 package com.example.controller;
 
+import com.example.dto.UserChangesDto;
+import com.example.dto.UserLookupRequestDto;
+import com.example.dto.UserLookupResponseDto;
 import com.example.dto.UserRequestDto;
 import com.example.dto.UserResponseDto;
 import com.example.service.UserService;
@@ -12,6 +15,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.IanaLinkRelations;
@@ -20,6 +24,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -34,8 +39,14 @@ public class UserController {
 
     private final UserService userService;
 
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final int MAX_CHANGES_LIMIT = 1000;
+
     @PostMapping
-    @Operation(summary = "Создать нового пользователя")
+    @Operation(summary = "Создать нового пользователя",
+            description = "Email занимается до записи пользователя. Если сервис упадёт между этими шагами, "
+                    + "повторный запрос с тем же email получит 409, пока фоновая сверка не освободит его "
+                    + "(email-claims.grace-period + email-claims.reconcile-interval, по умолчанию до 20 минут)")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Пользователь создан",
                     content = @Content(schema = @Schema(implementation = UserResponseDto.class))),
@@ -101,7 +112,9 @@ public class UserController {
     }
 
     @PutMapping("/{id}")
-    @Operation(summary = "Обновить пользователя")
+    @Operation(summary = "Обновить пользователя",
+            description = "При смене email новый адрес занимается до обновления, старый освобождается после. "
+                    + "При сбое между шагами старый email остаётся занят до фоновой сверки")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Пользователь обновлен"),
             @ApiResponse(responseCode = "400", description = "Неверные входные данные"),
@@ -161,4 +174,47 @@ public class UserController {
 
         return ResponseEntity.ok(userModel);
     }
+
+    @PostMapping("/lookup")
+    @Operation(summary = "Получить пользователей по списку ID и/или email")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Найденные пользователи и ненайденные ключи"),
+            @ApiResponse(responseCode = "400", description = "Неверные входные данные")
+    })
+    public ResponseEntity<UserLookupResponseDto> lookupUsers(
+            @Valid @RequestBody
+            @Parameter(description = "ID и email пользователей, до 1000 каждого")
+            UserLookupRequestDto lookupRequestDto) {
+
+        // Без HATEOAS-ссылок на каждого пользователя: ответ для массовых вызовов между сервисами
+        UserLookupResponseDto result = userService.lookupUsers(
+                lookupRequestDto.getIds() != null ? lookupRequestDto.getIds() : List.of(),
+                lookupRequestDto.getEmails() != null ? lookupRequestDto.getEmails() : List.of());
+
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Получить изменения пользователей после водяного знака",
+            description = "Изменения появляются в ленте с задержкой user-changes.safety-lag (по умолчанию 5 с)")
+    @ApiResponse(responseCode = "200", description = "Изменённые и удалённые пользователи в порядке (время, id)")
+    public ResponseEntity<UserChangesDto> getChanges(
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @Parameter(description = "Водяной знак: время последнего полученного изменения")
+            LocalDateTime since,
+            @RequestParam(defaultValue = "0")
+            @Parameter(description = "ID последнего полученного изменения")
+            Long afterId,
+            @RequestParam(defaultValue = "500")
+            @Parameter(description = "Максимальное число изменений в ответе")
+            int limit) {
+
+        UserChangesDto changes = userService.getChanges(
+                since != null ? since : EPOCH,
+                afterId,
+                Math.max(1, Math.min(limit, MAX_CHANGES_LIMIT)));
+
+        return ResponseEntity.ok(changes);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeletedUserDto {
+    private Long userId;
+    private String email;
+    private LocalDateTime deletedAt;
+}
\ No newline at end of file
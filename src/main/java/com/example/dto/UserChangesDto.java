@@ -0,0 +1,22 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChangesDto {
+    private List<UserResponseDto> updated;
+    private List<DeletedUserDto> deleted;
+    // Водяной знак для следующего запроса: since=watermark&afterId=watermarkId
+    private LocalDateTime watermark;
+    private Long watermarkId;
+    private boolean hasMore;
+}
\ No newline at end of file
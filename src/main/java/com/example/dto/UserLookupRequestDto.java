@@ -0,0 +1,28 @@
+package com.example.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserLookupRequestDto {
+
+    @Builder.Default
+    @Size(max = 1000, message = "No more than 1000 ids per lookup")
+    private List<@NotNull Long> ids = new ArrayList<>();
+
+    @Builder.Default
+    @Size(max = 1000, message = "No more than 1000 emails per lookup")
+    private List<@NotBlank @Email(message = "Invalid email format") String> emails = new ArrayList<>();
+}
\ No newline at end of file
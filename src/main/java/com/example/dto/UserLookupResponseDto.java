@@ -0,0 +1,20 @@
+package com.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserLookupResponseDto {
+    private Map<Long, UserResponseDto> byId;
+    private Map<String, UserResponseDto> byEmail;
+    private List<Long> missingIds;
+    private List<String> missingEmails;
+}
\ No newline at end of file
@@ -22,4 +22,5 @@ public class UserResponseDto extends RepresentationModel<UserResponseDto> {
     private String email;
     private Integer age;
     private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// Email -> id пользователя; хранится на шарде, выбранном по email
+@Entity
+@Table(name = "user_email_index")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserEmailIndex implements Persistable<String> {
+
+    @Id
+    private String email;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Когда email занят; сверка не трогает свежие записи, у которых вставка пользователя ещё идёт
+    @CreationTimestamp
+    @Column(name = "claimed_at", updatable = false)
+    private LocalDateTime claimedAt;
+
+    // Email занят, но запись пользователя ещё не подтверждена; такие строки проверяет EmailClaimReconciler
+    @Column(nullable = false)
+    @Builder.Default
+    private boolean pending = true;
+
+    @Transient
+    @Builder.Default
+    private boolean isNew = true;
+
+    @Override
+    public String getId() {
+        return email;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.example.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Запись об удалённом пользователе для ленты изменений
+@Entity
+@Table(name = "user_tombstones", indexes = @Index(name = "idx_user_tombstones_deleted_at", columnList = "deleted_at, user_id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String email;
+
+    @CreationTimestamp
+    @Column(name = "deleted_at", nullable = false, updatable = false)
+    private LocalDateTime deletedAt;
+}
\ No newline at end of file
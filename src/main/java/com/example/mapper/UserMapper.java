@@ -1,8 +1,10 @@
 package com.example.mapper;
 
+import com.example.dto.DeletedUserDto;
 import com.example.dto.UserRequestDto;
 import com.example.dto.UserResponseDto;
 import com.example.entity.User;
+import com.example.entity.UserTombstone;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -23,6 +25,15 @@ public class UserMapper {
                 .email(user.getEmail())
                 .age(user.getAge())
                 .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
+                .build();
+    }
+
+    public DeletedUserDto toDeletedDto(UserTombstone tombstone) {
+        return DeletedUserDto.builder()
+                .userId(tombstone.getUserId())
+                .email(tombstone.getEmail())
+                .deletedAt(tombstone.getDeletedAt())
                 .build();
     }
 }
\ No newline at end of file
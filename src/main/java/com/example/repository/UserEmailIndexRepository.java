@@ -0,0 +1,55 @@
+package com.example.repository;
+
+import com.example.entity.UserEmailIndex;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserEmailIndexRepository extends JpaRepository<UserEmailIndex, String> {
+    List<UserEmailIndex> findByEmailIn(Collection<String> emails);
+
+    // Неподтверждённые занятия email старше before; строки, которые уже сверяет другой экземпляр,
+    // пропускаются (FOR UPDATE SKIP LOCKED), поэтому экземпляры не делают одну работу дважды
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM UserEmailIndex e " +
+            "WHERE e.pending = true AND e.claimedAt < :before " +
+            "ORDER BY e.claimedAt")
+    List<UserEmailIndex> findPendingBefore(@Param("before") LocalDateTime before, Pageable pageable);
+
+    // Запись пользователя закоммичена: сверке эта строка больше не нужна
+    @Modifying
+    @Query("UPDATE UserEmailIndex e SET e.pending = false WHERE e.email = :email AND e.userId = :userId")
+    int confirmClaim(@Param("email") String email, @Param("userId") Long userId);
+
+    // Запись снова ждёт подтверждения; claimedAt сдвигается, чтобы сверка не тронула её раньше grace-period
+    @Modifying
+    @Query("UPDATE UserEmailIndex e SET e.pending = true, e.claimedAt = :now " +
+            "WHERE e.email = :email AND e.userId = :userId")
+    int reopenClaim(@Param("email") String email, @Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    // Пользователи, созданные до индекса email; имеет смысл только для одного шарда
+    @Modifying
+    @Query(value = "INSERT INTO user_email_index (email, user_id, claimed_at, pending) " +
+            "SELECT u.email, u.id, CURRENT_TIMESTAMP, FALSE FROM users u " +
+            "WHERE NOT EXISTS (SELECT 1 FROM user_email_index e WHERE e.email = u.email)",
+            nativeQuery = true)
+    int backfillFromUsers();
+
+    // Освобождает email, только если он всё ещё занят этим пользователем
+    @Modifying
+    @Query("DELETE FROM UserEmailIndex e WHERE e.email = :email AND e.userId = :userId")
+    int deleteByEmailAndUserId(@Param("email") String email, @Param("userId") Long userId);
+}
\ No newline at end of file
@@ -1,13 +1,35 @@
 package com.example.repository;
 
 import com.example.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+    List<User> findByIdIn(Collection<Long> ids);
+
+    @Query("SELECT u FROM User u " +
+            "WHERE (u.updatedAt > :since OR (u.updatedAt = :since AND u.id > :afterId)) " +
+            "AND u.updatedAt < :until " +
+            "ORDER BY u.updatedAt, u.id")
+    List<User> findChangedSince(@Param("since") LocalDateTime since,
+                                @Param("afterId") Long afterId,
+                                @Param("until") LocalDateTime until,
+                                Pageable pageable);
+
+    // Строки, созданные до появления updated_at, попадают в ленту со временем создания
+    @Modifying
+    @Query("UPDATE User u SET u.updatedAt = u.createdAt WHERE u.updatedAt IS NULL")
+    int backfillUpdatedAt();
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.example.repository;
+
+import com.example.entity.UserTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UserTombstoneRepository extends JpaRepository<UserTombstone, Long> {
+
+    @Query("SELECT t FROM UserTombstone t " +
+            "WHERE (t.deletedAt > :since OR (t.deletedAt = :since AND t.userId > :afterId)) " +
+            "AND t.deletedAt < :until " +
+            "ORDER BY t.deletedAt, t.userId")
+    List<UserTombstone> findDeletedSince(@Param("since") LocalDateTime since,
+                                         @Param("afterId") Long afterId,
+                                         @Param("until") LocalDateTime until,
+                                         Pageable pageable);
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.example.service;
+
+import com.example.entity.User;
+import com.example.entity.UserEmailIndex;
+import com.example.repository.UserEmailIndexRepository;
+import com.example.repository.UserRepository;
+import com.example.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Сверка неподтверждённых (pending) записей индекса email. Такая запись остаётся, если процесс упал
+ * между занятием email и записью пользователя, либо между сменой email / удалением и releaseEmail.
+ * Если у пользователя этот email — запись подтверждается, иначе освобождается.
+ * Читаются только pending-строки старше grace-period (индекс (pending, claimed_at)); экземпляры,
+ * запущенные одновременно, делят их через SKIP LOCKED.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmailClaimReconciler {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final UserEmailIndexRepository userEmailIndexRepository;
+    private final UserRepository userRepository;
+    private final ShardRouter shardRouter;
+
+    @Value("${email-claims.grace-period:PT10M}")
+    private Duration gracePeriod;
+
+    @Scheduled(fixedDelayString = "${email-claims.reconcile-interval:PT10M}",
+            initialDelayString = "${email-claims.reconcile-interval:PT10M}")
+    public void reconcile() {
+        LocalDateTime before = LocalDateTime.now().minus(gracePeriod);
+        int released = 0;
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            int batchReleased;
+            do {
+                batchReleased = reconcileBatch(shard, before);
+                released += Math.max(batchReleased, 0);
+            } while (batchReleased >= 0);
+        }
+        if (released > 0) {
+            log.warn("Released {} orphaned email claims", released);
+        }
+    }
+
+    // Одна пачка в транзакции на шарде email, строки заблокированы до её конца; -1 — больше нечего сверять
+    private int reconcileBatch(int shard, LocalDateTime before) {
+        return shardRouter.write(shard, () -> {
+            List<UserEmailIndex> claims = userEmailIndexRepository.findPendingBefore(before, PageRequest.of(0, BATCH_SIZE));
+            if (claims.isEmpty()) {
+                return -1;
+            }
+
+            Map<Integer, List<Long>> idsByShard = claims.stream()
+                    .map(UserEmailIndex::getUserId)
+                    .distinct()
+                    .collect(Collectors.groupingBy(shardRouter::shardForUserId));
+            Map<Long, String> emailById = shardRouter.readEach(new ArrayList<>(idsByShard.keySet()),
+                            userShard -> userRepository.findByIdIn(idsByShard.get(userShard)))
+                    .stream()
+                    .collect(Collectors.toMap(User::getId, User::getEmail));
+
+            int released = 0;
+            for (UserEmailIndex claim : claims) {
+                if (claim.getEmail().equals(emailById.get(claim.getUserId()))) {
+                    userEmailIndexRepository.confirmClaim(claim.getEmail(), claim.getUserId());
+                } else {
+                    released += userEmailIndexRepository.deleteByEmailAndUserId(claim.getEmail(), claim.getUserId());
+                }
+            }
+            return released;
+        });
+    }
+}
\ No newline at end of file
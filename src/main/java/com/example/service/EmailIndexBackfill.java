@@ -0,0 +1,39 @@
+package com.example.service;
+
+import com.example.repository.UserEmailIndexRepository;
+import com.example.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Заносит в user_email_index пользователей, созданных до индекса, иначе поиск по email их не находит.
+ * Только для одного шарда: при нескольких запись индекса должна лежать на шарде email,
+ * этот перенос описан в ShardingProperties. Идемпотентно.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmailIndexBackfill {
+
+    private final UserEmailIndexRepository userEmailIndexRepository;
+    private final ShardRouter shardRouter;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (shardRouter.getShardCount() > 1) {
+            return;
+        }
+        try {
+            int inserted = shardRouter.write(0, userEmailIndexRepository::backfillFromUsers);
+            if (inserted > 0) {
+                log.info("Backfilled email index for {} users", inserted);
+            }
+        } catch (DataAccessException e) {
+            log.error("Failed to backfill email index", e);
+        }
+    }
+}
\ No newline at end of file
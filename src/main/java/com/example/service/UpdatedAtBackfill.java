@@ -0,0 +1,37 @@
+package com.example.service;
+
+import com.example.repository.UserRepository;
+import com.example.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Заполняет updated_at = created_at у пользователей, созданных до появления ленты изменений,
+ * иначе они не попадают в /api/users/changes. Идемпотентно: после первого запуска не находит строк.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UpdatedAtBackfill {
+
+    private final UserRepository userRepository;
+    private final ShardRouter shardRouter;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            try {
+                int updated = shardRouter.write(shard, userRepository::backfillUpdatedAt);
+                if (updated > 0) {
+                    log.info("Backfilled updated_at for {} users on shard {}", updated, shard);
+                }
+            } catch (DataAccessException e) {
+                log.error("Failed to backfill updated_at on shard {}", shard, e);
+            }
+        }
+    }
+}
\ No newline at end of file
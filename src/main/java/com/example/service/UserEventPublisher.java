@@ -0,0 +1,536 @@
+package com.example.service;
+
+import com.example.dto.UserEventDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронная отправка событий пользователей в Kafka.
+ * Запросы только кладут событие в ограниченную очередь, отправкой занимается отдельный поток.
+ * <p>
+ * Порядок событий одного пользователя сохраняется: в пачке на отправку не больше одного события
+ * на пользователя, следующая пачка уходит только после подтверждения предыдущей, а ошибки
+ * повторяются на месте с экспоненциальной задержкой.
+ * <p>
+ * Когда брокер тормозит и очередь заполнена, срабатывает политика {@link OverflowPolicy}.
+ * При SPILL файл — продолжение очереди: пока он не дочитан, новые события пишутся в его конец,
+ * а строки удаляются только после доставки.
+ * <p>
+ * Доставка at-least-once: после падения файл дочитывается заново, а при остановке по таймауту
+ * в файл сохраняется вся неподтверждённая пачка, даже если брокер успел принять её часть.
+ * Ошибки, которые повтор не исправит (сериализация, слишком большое сообщение, авторизация),
+ * не повторяются: событие считается отброшенным.
+ */
+@Component
+@Slf4j
+public class UserEventPublisher {
+
+    public enum OverflowPolicy {
+        BLOCK,  // ждать место в очереди не дольше block-timeout, потом отбросить
+        DROP,   // сразу отбросить и посчитать
+        SPILL   // записать на диск и дослать по порядку; неотправленное повторяется без ограничения попыток
+    }
+
+    private static final String USER_EVENTS_TOPIC = "aston-user-events";
+    private static final int MAX_BATCH = 500;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final long POLL_MS = 200;
+    private static final long SPILL_ERROR_BACKOFF_MS = 1000;
+
+    private final KafkaTemplate<String, UserEventDto> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<UserEventDto> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMs;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final long shutdownTimeoutMs;
+    private final Path spillFile;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+
+    private final Object spillLock = new Object();
+    // Меняется под spillLock: в файле есть недоставленные события
+    private volatile boolean spilling;
+    // Только поток отправки: сколько байт файла уже доставлено и где кончается текущая пачка из файла
+    private long spillOffset;
+    private long spillBatchEnd = -1;
+    // Только поток отправки: после ошибки чтения файл не перечитывается до этого момента
+    private long spillRetryAt;
+
+    // Пачка из очереди, которую сейчас отправляет поток: если он не успел к концу остановки, её сохраняет stop()
+    private volatile List<UserEventDto> inFlight = List.of();
+    // Недоставленное при остановке обрабатывается один раз: потоком отправки или stop() по таймауту
+    private final AtomicBoolean shutdownHandled = new AtomicBoolean();
+
+    private volatile boolean stopping;
+    private volatile long shutdownDeadline = Long.MAX_VALUE;
+    private Thread dispatcher;
+
+    public UserEventPublisher(KafkaTemplate<String, UserEventDto> kafkaTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${user-events.queue-capacity:10000}") int queueCapacity,
+                              @Value("${user-events.overflow-policy:SPILL}") OverflowPolicy overflowPolicy,
+                              @Value("${user-events.block-timeout-ms:50}") long blockTimeoutMs,
+                              @Value("${user-events.max-retries:3}") int maxRetries,
+                              @Value("${user-events.retry-backoff-ms:100}") long retryBackoffMs,
+                              @Value("${user-events.shutdown-timeout-ms:10000}") long shutdownTimeoutMs,
+                              @Value("${user-events.spill-file:logs/user-events-spill.jsonl}") String spillFile) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.spillFile = Paths.get(spillFile);
+        // Файл от прошлого запуска дочитывается раньше новых событий
+        this.spilling = Files.exists(this.spillFile);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher = new Thread(this::dispatchLoop, "user-events-publisher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Досылает очередь в Kafka не дольше shutdown-timeout; что не успело уйти,
+     * при SPILL сохраняется в начало файла, иначе отбрасывается. Если поток отправки
+     * завис (send блокируется на max.block.ms), пачку в отправке и очередь сохраняет stop().
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        shutdownDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMs);
+        stopping = true;
+        if (dispatcher != null) {
+            dispatcher.join(shutdownTimeoutMs + 1000);
+            if (!dispatcher.isAlive()) {
+                return;
+            }
+            log.warn("User events publisher did not stop within {} ms, saving in-flight and queued events",
+                    shutdownTimeoutMs);
+        }
+        finishShutdown(inFlight);
+    }
+
+    public void publish(UserEventDto event) {
+        synchronized (spillLock) {
+            if (spilling) {
+                // Файл новее очереди: пока он не дочитан, событие встаёт в его конец
+                if (!appendToSpill(List.of(event))) {
+                    drop(event, "spill file is not writable");
+                }
+                return;
+            }
+        }
+        if (stopping || !offer(event)) {
+            overflow(event);
+        }
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getSpilledCount() {
+        return spilled.get();
+    }
+
+    private boolean offer(UserEventDto event) {
+        try {
+            return overflowPolicy == OverflowPolicy.BLOCK
+                    ? queue.offer(event, blockTimeoutMs, TimeUnit.MILLISECONDS)
+                    : queue.offer(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void overflow(UserEventDto event) {
+        if (overflowPolicy == OverflowPolicy.SPILL) {
+            synchronized (spillLock) {
+                if (appendToSpill(List.of(event))) {
+                    spilling = true;
+                    return;
+                }
+            }
+        }
+        drop(event, "publish queue is full");
+    }
+
+    private void drop(UserEventDto event, String reason) {
+        dropped.incrementAndGet();
+        log.warn("Dropped {} event for user {}: {}", event.getEventType(), event.getUserId(), reason);
+    }
+
+    private void dispatchLoop() {
+        List<UserEventDto> undelivered = new ArrayList<>();
+        try {
+            while (true) {
+                List<UserEventDto> batch = nextBatch();
+                boolean fromSpill = spillBatchEnd >= 0;
+                if (batch.isEmpty()) {
+                    if (stopping) {
+                        break;
+                    }
+                    continue;
+                }
+                if (!fromSpill) {
+                    inFlight = batch;
+                }
+                List<UserEventDto> unconfirmed = deliver(batch);
+                if (!unconfirmed.isEmpty()) {
+                    // Остановка по таймауту; пачка из файла остаётся в нём и будет дочитана при следующем запуске
+                    if (!fromSpill) {
+                        undelivered.addAll(unconfirmed);
+                    }
+                    break;
+                }
+                inFlight = List.of();
+                if (fromSpill) {
+                    commitSpillBatch();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finishShutdown(undelivered);
+    }
+
+    // События из отправки и оставшаяся очередь сохраняются или отбрасываются ровно один раз
+    private void finishShutdown(List<UserEventDto> undelivered) {
+        if (shutdownHandled.compareAndSet(false, true)) {
+            List<UserEventDto> events = new ArrayList<>(undelivered);
+            events.addAll(drainQueue());
+            handleUndelivered(events);
+        }
+    }
+
+    private void commitSpillBatch() {
+        synchronized (spillLock) {
+            // После stop() файл уже переписан с текущей позиции
+            if (!shutdownHandled.get()) {
+                spillOffset = spillBatchEnd;
+            }
+        }
+    }
+
+    // Пачка без повторов пользователя: сначала из очереди, а когда она пуста — из файла
+    private List<UserEventDto> nextBatch() throws InterruptedException {
+        spillBatchEnd = -1;
+        List<UserEventDto> batch = new ArrayList<>();
+        boolean spillReady = spilling && System.currentTimeMillis() >= spillRetryAt;
+        UserEventDto first = spillReady ? queue.poll() : queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return stopping || !spillReady ? batch : readSpillBatch();
+        }
+        Set<Long> users = new HashSet<>();
+        batch.add(first);
+        users.add(first.getUserId());
+        UserEventDto next;
+        while (batch.size() < MAX_BATCH && (next = queue.peek()) != null && users.add(next.getUserId())) {
+            batch.add(queue.poll());
+        }
+        return batch;
+    }
+
+    /**
+     * Отправляет пачку и ждёт подтверждений; неудачные события повторяются на месте.
+     * Возвращает неподтверждённое (в исходном порядке), только если истёк срок остановки сервиса.
+     */
+    private List<UserEventDto> deliver(List<UserEventDto> batch) throws InterruptedException {
+        List<UserEventDto> pending = batch;
+        for (int attempt = 1; ; attempt++) {
+            List<CompletableFuture<SendResult<String, UserEventDto>>> futures = new ArrayList<>(pending.size());
+            for (UserEventDto event : pending) {
+                // После срока остановки новые send не начинаются: каждый может блокироваться на max.block.ms
+                futures.add(shutdownExpired() ? null : sendAsync(event));
+            }
+
+            List<UserEventDto> unconfirmed = new ArrayList<>();
+            boolean timedOut = false;
+            Throwable lastError = null;
+            for (int i = 0; i < futures.size(); i++) {
+                UserEventDto event = pending.get(i);
+                try {
+                    if (futures.get(i) == null) {
+                        throw new TimeoutException("shutdown timeout exceeded");
+                    }
+                    awaitResult(futures.get(i));
+                    sent.incrementAndGet();
+                } catch (TimeoutException e) {
+                    timedOut = true;
+                    unconfirmed.add(event);
+                } catch (ExecutionException e) {
+                    failed.incrementAndGet();
+                    if (isRetriable(e.getCause())) {
+                        unconfirmed.add(event);
+                        lastError = e.getCause();
+                    } else {
+                        log.error("Non-retriable error sending {} event for user {}",
+                                event.getEventType(), event.getUserId(), e.getCause());
+                        drop(event, "non-retriable send error");
+                    }
+                }
+            }
+            if (unconfirmed.isEmpty() || timedOut) {
+                return timedOut ? unconfirmed : List.of();
+            }
+
+            if (overflowPolicy != OverflowPolicy.SPILL && attempt > maxRetries) {
+                log.error("Giving up on {} user events after {} attempts", unconfirmed.size(), attempt, lastError);
+                unconfirmed.forEach(event -> drop(event, "retries exhausted"));
+                return List.of();
+            }
+
+            long backoff = Math.min(MAX_BACKOFF_MS, retryBackoffMs << Math.min(attempt - 1, 20));
+            if (stopping) {
+                long remaining = remainingShutdownMillis();
+                if (remaining <= 0) {
+                    return unconfirmed;
+                }
+                backoff = Math.min(backoff, remaining);
+            }
+            log.warn("Failed to send {} user events (attempt {}), retrying in {} ms: {}",
+                    unconfirmed.size(), attempt, backoff, lastError.getMessage());
+            Thread.sleep(backoff);
+            pending = unconfirmed;
+        }
+    }
+
+    // Ждёт подтверждения порциями, чтобы остановка не ждала весь delivery.timeout.ms
+    private void awaitResult(Future<?> future) throws InterruptedException, ExecutionException, TimeoutException {
+        while (true) {
+            long wait = POLL_MS;
+            if (stopping) {
+                wait = Math.max(0, Math.min(wait, remainingShutdownMillis()));
+                if (wait == 0 && !future.isDone()) {
+                    throw new TimeoutException("shutdown timeout exceeded");
+                }
+            }
+            try {
+                future.get(wait, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                // ждём следующую порцию
+            }
+        }
+    }
+
+    private long remainingShutdownMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(shutdownDeadline - System.nanoTime());
+    }
+
+    private boolean shutdownExpired() {
+        return stopping && remainingShutdownMillis() <= 0;
+    }
+
+    // Ошибки сериализации, размера сообщения или авторизации повтор не исправит
+    private static boolean isRetriable(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof org.springframework.kafka.KafkaException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return !(cause instanceof KafkaException) || cause instanceof RetriableException;
+    }
+
+    private CompletableFuture<SendResult<String, UserEventDto>> sendAsync(UserEventDto event) {
+        try {
+            return kafkaTemplate.send(USER_EVENTS_TOPIC, String.valueOf(event.getUserId()), event);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private List<UserEventDto> drainQueue() {
+        List<UserEventDto> events = new ArrayList<>();
+        queue.drainTo(events);
+        return events;
+    }
+
+    private void handleUndelivered(List<UserEventDto> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.SPILL && prependToSpill(events)) {
+            log.info("Saved {} undelivered user events to {}", events.size(), spillFile);
+            return;
+        }
+        events.forEach(event -> drop(event, "publisher stopped"));
+    }
+
+    // Вызывается под spillLock
+    private boolean appendToSpill(List<UserEventDto> events) {
+        try {
+            Path parent = spillFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (UserEventDto event : events) {
+                    writer.write(objectMapper.writeValueAsString(event));
+                    writer.write('\n');
+                }
+            }
+            spilled.addAndGet(events.size());
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to spill {} user events to {}", events.size(), spillFile, e);
+            return false;
+        }
+    }
+
+    // События из очереди старше содержимого файла, поэтому при остановке они пишутся в его начало
+    private boolean prependToSpill(List<UserEventDto> events) {
+        synchronized (spillLock) {
+            if (!spilling || !Files.exists(spillFile)) {
+                spilling = appendToSpill(events);
+                return spilling;
+            }
+            Path merged = spillFile.resolveSibling(spillFile.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(merged);
+                 FileChannel rest = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+                for (UserEventDto event : events) {
+                    out.write(objectMapper.writeValueAsBytes(event));
+                    out.write('\n');
+                }
+                rest.position(spillOffset);
+                Channels.newInputStream(rest).transferTo(out);
+            } catch (IOException e) {
+                log.error("Failed to save {} undelivered user events to {}", events.size(), spillFile, e);
+                return false;
+            }
+            try {
+                Files.move(merged, spillFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                spillOffset = 0;
+                spilled.addAndGet(events.size());
+                return true;
+            } catch (IOException e) {
+                log.error("Failed to replace {} with {}", spillFile, merged, e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Следующая пачка из файла начиная с уже доставленной позиции.
+     * Когда файл дочитан (а всё прочитанное раньше уже доставлено), он удаляется.
+     */
+    private List<UserEventDto> readSpillBatch() {
+        synchronized (spillLock) {
+            if (!spilling) {
+                return List.of();
+            }
+            List<UserEventDto> batch = new ArrayList<>();
+            Set<Long> users = new HashSet<>();
+            boolean endOfFile = false;
+            long offset = spillOffset;
+            try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.READ);
+                 BufferedReader reader = new BufferedReader(
+                         Channels.newReader(channel.position(offset), StandardCharsets.UTF_8))) {
+                while (batch.size() < MAX_BATCH) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        endOfFile = true;
+                        break;
+                    }
+                    UserEventDto event = parseSpilled(line);
+                    if (event != null && !users.add(event.getUserId())) {
+                        break;
+                    }
+                    offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                    if (event != null) {
+                        batch.add(event);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Failed to read spilled user events from {}, retrying in {} ms",
+                        spillFile, SPILL_ERROR_BACKOFF_MS, e);
+                spillRetryAt = System.currentTimeMillis() + SPILL_ERROR_BACKOFF_MS;
+                if (!Files.exists(spillFile)) {
+                    spilling = false;
+                    spillOffset = 0;
+                }
+                return List.of();
+            }
+
+            if (batch.isEmpty() && endOfFile) {
+                try {
+                    Files.deleteIfExists(spillFile);
+                    spilling = false;
+                    spillOffset = 0;
+                    log.info("All spilled user events delivered");
+                } catch (IOException e) {
+                    log.error("Failed to delete {}", spillFile, e);
+                }
+                return List.of();
+            }
+            // Позиция в файле сдвигается только после доставки пачки
+            spillBatchEnd = offset;
+            return batch;
+        }
+    }
+
+    private UserEventDto parseSpilled(String line) {
+        if (line.isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(line, UserEventDto.class);
+        } catch (JsonProcessingException e) {
+            log.error("Skipping unreadable spilled event: {}", line, e);
+            return null;
+        }
+    }
+}
\ No newline at end of file
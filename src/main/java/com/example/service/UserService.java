@@ -1,8 +1,12 @@
 package com.example.service;
 
+import com.example.dto.UserChangesDto;
+import com.example.dto.UserLookupResponseDto;
 import com.example.dto.UserRequestDto;
 import com.example.dto.UserResponseDto;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface UserService {
@@ -12,4 +16,6 @@ public interface UserService {
     UserResponseDto updateUser(Long id, UserRequestDto userRequestDto);
     void deleteUser(Long id);
     UserResponseDto getUserByEmail(String email);
+    UserChangesDto getChanges(LocalDateTime since, Long afterId, int limit);
+    UserLookupResponseDto lookupUsers(Collection<Long> ids, Collection<String> emails);
 }
\ No newline at end of file
@@ -1,47 +1,81 @@
 package com.example.service.impl;
 
+import com.example.dto.DeletedUserDto;
+import com.example.dto.UserChangesDto;
 import com.example.dto.UserEventDto;
+import com.example.dto.UserLookupResponseDto;
 import com.example.dto.UserRequestDto;
 import com.example.dto.UserResponseDto;
 import com.example.entity.User;
+import com.example.entity.UserEmailIndex;
+import com.example.entity.UserTombstone;
 import com.example.exception.UserNotFoundException;
 import com.example.mapper.UserMapper;
+import com.example.repository.UserEmailIndexRepository;
 import com.example.repository.UserRepository;
+import com.example.repository.UserTombstoneRepository;
+import com.example.service.UserEventPublisher;
 import com.example.service.UserService;
+import com.example.sharding.ShardRouter;
+import com.example.sharding.UserIdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+// Транзакции открывает ShardRouter: каждая — на одном шарде
 @Service
 @RequiredArgsConstructor
 @Slf4j
-@Transactional
 public class UserServiceImpl implements UserService {
 
+    // Размер IN (...) в одном запросе
+    private static final int LOOKUP_CHUNK_SIZE = 500;
+
     private final UserRepository userRepository;
+    private final UserTombstoneRepository userTombstoneRepository;
+    private final UserEmailIndexRepository userEmailIndexRepository;
     private final UserMapper userMapper;
-    private final KafkaTemplate<String, UserEventDto> kafkaTemplate;
+    private final UserEventPublisher userEventPublisher;
+    private final ShardRouter shardRouter;
+    private final UserIdGenerator userIdGenerator;
 
-    private static final String USER_EVENTS_TOPIC = "aston-user-events";
+    // updated_at ставится часами JVM при flush, а не в порядке коммита: свежие строки ещё могут
+    // дополниться более ранними по времени, поэтому лента отдаёт только изменения старше now - lag
+    @Value("${user-changes.safety-lag:PT5S}")
+    private Duration changesSafetyLag;
 
     @Override
     public UserResponseDto createUser(UserRequestDto userRequestDto) {
         log.info("Creating user with email: {}", userRequestDto.getEmail());
 
-        if (userRepository.existsByEmail(userRequestDto.getEmail())) {
-            throw new DataIntegrityViolationException(
-                    "User with email " + userRequestDto.getEmail() + " already exists"
-            );
-        }
-
         User user = userMapper.toEntity(userRequestDto);
-        User savedUser = userRepository.save(user);
+        user.setId(userIdGenerator.nextId());
+
+        claimEmail(user.getEmail(), user.getId());
+        User savedUser;
+        try {
+            savedUser = shardRouter.write(shardRouter.shardForUserId(user.getId()), () -> userRepository.save(user));
+        } catch (RuntimeException e) {
+            releaseEmail(user.getEmail(), user.getId());
+            throw e;
+        }
+        confirmEmail(savedUser.getEmail(), savedUser.getId());
 
         // Отправляем событие в Kafka
         UserEventDto event = UserEventDto.builder()
@@ -51,8 +85,8 @@ public class UserServiceImpl implements UserService {
                 .userId(savedUser.getId())
                 .build();
 
-        kafkaTemplate.send(USER_EVENTS_TOPIC, event);
-        log.info("✅ Sent CREATED event to Kafka for user: {}", savedUser.getEmail());
+        userEventPublisher.publish(event);
+        log.info("✅ Queued CREATED event to Kafka for user: {}", savedUser.getEmail());
 
         return userMapper.toResponseDto(savedUser);
     }
@@ -61,18 +95,18 @@ public class UserServiceImpl implements UserService {
     public UserResponseDto getUserById(Long id) {
         log.info("Fetching user by ID: {}", id);
 
-        User user = userRepository.findById(id)
+        User user = shardRouter.read(shardRouter.shardForUserId(id), () -> userRepository.findById(id))
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
 
         return userMapper.toResponseDto(user);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public List<UserResponseDto> getAllUsers() {
         log.info("Fetching all users");
 
-        return userRepository.findAll().stream()
+        return shardRouter.readAll(userRepository::findAll).stream()
+                .sorted(Comparator.comparing(User::getId))
                 .map(userMapper::toResponseDto)
                 .collect(Collectors.toList());
     }
@@ -81,21 +115,39 @@ public class UserServiceImpl implements UserService {
     public UserResponseDto updateUser(Long id, UserRequestDto userRequestDto) {
         log.info("Updating user with ID: {}", id);
 
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
+        int shard = shardRouter.shardForUserId(id);
+        String oldEmail = shardRouter.read(shard, () -> userRepository.findById(id))
+                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id))
+                .getEmail();
 
-        if (!user.getEmail().equals(userRequestDto.getEmail()) &&
-                userRepository.existsByEmail(userRequestDto.getEmail())) {
-            throw new DataIntegrityViolationException(
-                    "User with email " + userRequestDto.getEmail() + " already exists"
-            );
+        boolean emailChanged = !oldEmail.equals(userRequestDto.getEmail());
+        if (emailChanged) {
+            claimEmail(userRequestDto.getEmail(), id);
+            reopenEmail(oldEmail, id);
         }
 
-        user.setName(userRequestDto.getName());
-        user.setEmail(userRequestDto.getEmail());
-        user.setAge(userRequestDto.getAge());
+        User updatedUser;
+        try {
+            updatedUser = shardRouter.write(shard, () -> {
+                User user = userRepository.findById(id)
+                        .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
+                user.setName(userRequestDto.getName());
+                user.setEmail(userRequestDto.getEmail());
+                user.setAge(userRequestDto.getAge());
+                return userRepository.save(user);
+            });
+        } catch (RuntimeException e) {
+            if (emailChanged) {
+                releaseEmail(userRequestDto.getEmail(), id);
+                confirmEmail(oldEmail, id);
+            }
+            throw e;
+        }
 
-        User updatedUser = userRepository.save(user);
+        if (emailChanged) {
+            confirmEmail(userRequestDto.getEmail(), id);
+            releaseEmail(oldEmail, id);
+        }
         log.info("User updated successfully with ID: {}", updatedUser.getId());
 
         return userMapper.toResponseDto(updatedUser);
@@ -105,13 +157,32 @@ public class UserServiceImpl implements UserService {
     public void deleteUser(Long id) {
         log.info("Deleting user with ID: {}", id);
 
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
+        int shard = shardRouter.shardForUserId(id);
+        String currentEmail = shardRouter.read(shard, () -> userRepository.findById(id))
+                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id))
+                .getEmail();
+        reopenEmail(currentEmail, id);
+
+        User user;
+        try {
+            user = shardRouter.write(shard, () -> {
+                User existing = userRepository.findById(id)
+                        .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
+                userRepository.delete(existing);
+                userTombstoneRepository.save(UserTombstone.builder()
+                        .userId(id)
+                        .email(existing.getEmail())
+                        .build());
+                return existing;
+            });
+        } catch (RuntimeException e) {
+            confirmEmail(currentEmail, id);
+            throw e;
+        }
 
         String email = user.getEmail();
         String name = user.getName();
-
-        userRepository.deleteById(id);
+        releaseEmail(email, id);
 
         // Отправляем событие в Kafka
         UserEventDto event = UserEventDto.builder()
@@ -121,18 +192,170 @@ public class UserServiceImpl implements UserService {
                 .userId(id)
                 .build();
 
-        kafkaTemplate.send(USER_EVENTS_TOPIC, event);
-        log.info("✅ Sent DELETED event to Kafka for user: {}", email);
+        userEventPublisher.publish(event);
+        log.info("✅ Queued DELETED event to Kafka for user: {}", email);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public UserResponseDto getUserByEmail(String email) {
         log.info("Fetching user by email: {}", email);
 
-        User user = userRepository.findByEmail(email)
+        Long userId = shardRouter.read(shardRouter.shardForEmail(email), () -> userEmailIndexRepository.findById(email))
+                .map(UserEmailIndex::getUserId)
+                .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
+
+        // Запись индекса может отставать от пользователя (смена email в процессе или сбой до releaseEmail)
+        User user = shardRouter.read(shardRouter.shardForUserId(userId), () -> userRepository.findById(userId))
+                .filter(found -> email.equals(found.getEmail()))
                 .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
 
         return userMapper.toResponseDto(user);
     }
+
+    @Override
+    public UserChangesDto getChanges(LocalDateTime since, Long afterId, int limit) {
+        log.info("Fetching user changes since {} after ID {}", since, afterId);
+
+        LocalDateTime until = LocalDateTime.now().minus(changesSafetyLag);
+        // +1 строка из каждой таблицы, чтобы понять, есть ли следующая порция
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<User> changed = new ArrayList<>(
+                shardRouter.readAll(() -> userRepository.findChangedSince(since, afterId, until, page)));
+        changed.sort(Comparator.comparing(User::getUpdatedAt).thenComparing(User::getId));
+        List<UserTombstone> tombstones = new ArrayList<>(
+                shardRouter.readAll(() -> userTombstoneRepository.findDeletedSince(since, afterId, until, page)));
+        tombstones.sort(Comparator.comparing(UserTombstone::getDeletedAt).thenComparing(UserTombstone::getUserId));
+
+        // Слияние двух отсортированных по (время, id) списков
+        List<UserResponseDto> updated = new ArrayList<>();
+        List<DeletedUserDto> deleted = new ArrayList<>();
+        LocalDateTime watermark = since;
+        Long watermarkId = afterId;
+        int i = 0;
+        int j = 0;
+        while (i + j < limit && (i < changed.size() || j < tombstones.size())) {
+            if (j >= tombstones.size() || (i < changed.size() && isBefore(changed.get(i), tombstones.get(j)))) {
+                User user = changed.get(i++);
+                updated.add(userMapper.toResponseDto(user));
+                watermark = user.getUpdatedAt();
+                watermarkId = user.getId();
+            } else {
+                UserTombstone tombstone = tombstones.get(j++);
+                deleted.add(userMapper.toDeletedDto(tombstone));
+                watermark = tombstone.getDeletedAt();
+                watermarkId = tombstone.getUserId();
+            }
+        }
+
+        return UserChangesDto.builder()
+                .updated(updated)
+                .deleted(deleted)
+                .watermark(watermark)
+                .watermarkId(watermarkId)
+                .hasMore(changed.size() + tombstones.size() > i + j)
+                .build();
+    }
+
+    @Override
+    public UserLookupResponseDto lookupUsers(Collection<Long> ids, Collection<String> emails) {
+        log.info("Looking up {} users by ID and {} by email", ids.size(), emails.size());
+
+        // Email -> id через индекс на шардах email, по одному IN-запросу на шард
+        Map<Integer, List<String>> emailsByShard = emails.stream()
+                .distinct()
+                .collect(Collectors.groupingBy(shardRouter::shardForEmail));
+        Map<String, Long> userIdByEmail = shardRouter.readEach(new ArrayList<>(emailsByShard.keySet()),
+                        shard -> inChunks(emailsByShard.get(shard), userEmailIndexRepository::findByEmailIn))
+                .stream()
+                .collect(Collectors.toMap(UserEmailIndex::getEmail, UserEmailIndex::getUserId));
+
+        Set<Long> allIds = new LinkedHashSet<>(ids);
+        allIds.addAll(userIdByEmail.values());
+        Map<Integer, List<Long>> idsByShard = allIds.stream()
+                .collect(Collectors.groupingBy(shardRouter::shardForUserId));
+        Map<Long, UserResponseDto> usersById = shardRouter.readEach(new ArrayList<>(idsByShard.keySet()),
+                        shard -> inChunks(idsByShard.get(shard), userRepository::findByIdIn))
+                .stream()
+                .collect(Collectors.toMap(User::getId, userMapper::toResponseDto));
+
+        Map<Long, UserResponseDto> byId = new LinkedHashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        ids.stream().distinct().forEach(id -> {
+            UserResponseDto user = usersById.get(id);
+            if (user != null) {
+                byId.put(id, user);
+            } else {
+                missingIds.add(id);
+            }
+        });
+
+        Map<String, UserResponseDto> byEmail = new LinkedHashMap<>();
+        List<String> missingEmails = new ArrayList<>();
+        emails.stream().distinct().forEach(email -> {
+            Long userId = userIdByEmail.get(email);
+            UserResponseDto user = userId != null ? usersById.get(userId) : null;
+            // Запись индекса может указывать на пользователя, у которого email уже другой
+            if (user != null && email.equals(user.getEmail())) {
+                byEmail.put(email, user);
+            } else {
+                missingEmails.add(email);
+            }
+        });
+
+        return UserLookupResponseDto.builder()
+                .byId(byId)
+                .byEmail(byEmail)
+                .missingIds(missingIds)
+                .missingEmails(missingEmails)
+                .build();
+    }
+
+    private static <K, T> List<T> inChunks(List<K> keys, Function<List<K>, List<T>> query) {
+        List<T> result = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += LOOKUP_CHUNK_SIZE) {
+            result.addAll(query.apply(keys.subList(from, Math.min(keys.size(), from + LOOKUP_CHUNK_SIZE))));
+        }
+        return result;
+    }
+
+    private static boolean isBefore(User user, UserTombstone tombstone) {
+        int byTime = user.getUpdatedAt().compareTo(tombstone.getDeletedAt());
+        return byTime < 0 || (byTime == 0 && user.getId() < tombstone.getUserId());
+    }
+
+    // Email уникален глобально: запись в индексе на шарде email занимает его за пользователем.
+    // Запись создаётся с pending = true; если процесс упадёт до confirmEmail, её разберёт EmailClaimReconciler
+    private void claimEmail(String email, Long userId) {
+        shardRouter.write(shardRouter.shardForEmail(email), () -> {
+            if (userEmailIndexRepository.existsById(email)) {
+                throw new DataIntegrityViolationException("User with email " + email + " already exists");
+            }
+            return userEmailIndexRepository.save(UserEmailIndex.builder()
+                    .email(email)
+                    .userId(userId)
+                    .build());
+        });
+    }
+
+    // Сбой здесь не откатывает запрос: пользователь уже записан, pending снимет сверка
+    private void confirmEmail(String email, Long userId) {
+        try {
+            shardRouter.write(shardRouter.shardForEmail(email),
+                    () -> userEmailIndexRepository.confirmClaim(email, userId));
+        } catch (RuntimeException e) {
+            log.warn("Failed to confirm email claim for user {}, leaving it to reconciliation", userId, e);
+        }
+    }
+
+    // Перед удалением пользователя или сменой email: если процесс упадёт до releaseEmail,
+    // запись снова видна сверке и будет освобождена, когда у пользователя окажется другой email
+    private void reopenEmail(String email, Long userId) {
+        shardRouter.write(shardRouter.shardForEmail(email),
+                () -> userEmailIndexRepository.reopenClaim(email, userId, LocalDateTime.now()));
+    }
+
+    private void releaseEmail(String email, Long userId) {
+        shardRouter.write(shardRouter.shardForEmail(email),
+                () -> userEmailIndexRepository.deleteByEmailAndUserId(email, userId));
+    }
 }
\ No newline at end of file
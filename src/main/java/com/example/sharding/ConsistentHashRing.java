@@ -0,0 +1,52 @@
+package com.example.sharding;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Кольцо консистентного хеширования: при добавлении шарда переезжает
+ * только ~1/N ключей, а не почти все, как при hash % N.
+ * Точки кольца считаются от имён шардов, поэтому порядок шардов в конфиге на маршрутизацию не влияет.
+ */
+public class ConsistentHashRing {
+
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    /**
+     * @param shardNames имена шардов; значение кольца — индекс шарда в этом списке
+     */
+    public ConsistentHashRing(List<String> shardNames, int virtualNodes) {
+        if (shardNames.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("shardNames must not be empty and virtualNodes must be positive");
+        }
+        if (shardNames.stream().anyMatch(name -> name == null || name.isBlank())
+                || new HashSet<>(shardNames).size() != shardNames.size()) {
+            throw new IllegalArgumentException("Shard names must be non-blank and unique: " + shardNames);
+        }
+        for (int shard = 0; shard < shardNames.size(); shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.put(hash(shardNames.get(shard) + "#" + node), shard);
+            }
+        }
+    }
+
+    public int shardFor(String key) {
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(hash(key));
+        return (entry != null ? entry : ring.firstEntry()).getValue();
+    }
+
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+}
\ No newline at end of file
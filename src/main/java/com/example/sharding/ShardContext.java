@@ -0,0 +1,24 @@
+package com.example.sharding;
+
+/**
+ * Шард текущего потока, по нему {@link ShardRoutingDataSource} выбирает соединение.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    static void set(Integer shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+}
\ No newline at end of file
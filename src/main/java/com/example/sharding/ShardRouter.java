@@ -0,0 +1,133 @@
+package com.example.sharding;
+
+import com.example.config.ShardingProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Выполняет работу с репозиториями на нужном шарде, каждый вызов — в своей транзакции.
+ * Транзакция на несколько шардов не поддерживается.
+ */
+@Component
+public class ShardRouter {
+
+    private final int shardCount;
+    private final ConsistentHashRing ring;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final ExecutorService scatterExecutor;
+
+    public ShardRouter(ShardingProperties sharding,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${spring.datasource.hikari.maximum-pool-size:10}") int shardPoolSize) {
+        this.shardCount = sharding.getShardCount();
+        this.ring = new ConsistentHashRing(sharding.getShardNames(), sharding.getVirtualNodes());
+
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+
+        // Потоков столько, сколько соединений во всех пулах шардов: меньше — и параллельные
+        // запросы встают в очередь к пулу потоков при свободных соединениях
+        int scatterThreads = sharding.getScatterThreads() > 0
+                ? sharding.getScatterThreads()
+                : shardCount * shardPoolSize;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.scatterExecutor = shardCount > 1
+                ? Executors.newFixedThreadPool(scatterThreads, runnable -> {
+                    Thread thread = new Thread(runnable, "shard-scatter-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdown();
+        }
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int shardForUserId(Long userId) {
+        return ring.shardFor("id:" + userId);
+    }
+
+    public int shardForEmail(String email) {
+        return ring.shardFor("email:" + email);
+    }
+
+    public <T> T write(int shard, Supplier<T> work) {
+        return onShard(shard, writeTransaction, work);
+    }
+
+    public <T> T read(int shard, Supplier<T> work) {
+        return onShard(shard, readTransaction, work);
+    }
+
+    /**
+     * Scatter-gather: выполняет чтение на всех шардах параллельно и склеивает результаты.
+     */
+    public <T> List<T> readAll(Supplier<List<T>> work) {
+        return readEach(IntStream.range(0, shardCount).boxed().collect(Collectors.toList()), shard -> work.get());
+    }
+
+    /**
+     * Параллельное чтение на перечисленных шардах, work получает номер шарда.
+     * Первый шард читает вызывающий поток, остальные — пул.
+     */
+    public <T> List<T> readEach(List<Integer> shards, Function<Integer, List<T>> work) {
+        if (scatterExecutor == null || shards.size() < 2) {
+            List<T> result = new ArrayList<>();
+            shards.forEach(shard -> result.addAll(read(shard, () -> work.apply(shard))));
+            return result;
+        }
+
+        List<CompletableFuture<List<T>>> futures = shards.subList(1, shards.size()).stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> read(shard, () -> work.apply(shard)), scatterExecutor))
+                .collect(Collectors.toList());
+        try {
+            int first = shards.get(0);
+            List<T> result = new ArrayList<>(read(first, () -> work.apply(first)));
+            futures.forEach(future -> result.addAll(future.join()));
+            return result;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private <T> T onShard(int shard, TransactionTemplate transaction, Supplier<T> work) {
+        Integer previous = ShardContext.current();
+        ShardContext.set(shard);
+        try {
+            return transaction.execute(status -> work.get());
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+}
\ No newline at end of file
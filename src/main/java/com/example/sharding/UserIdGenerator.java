@@ -0,0 +1,56 @@
+package com.example.sharding;
+
+import com.example.config.ShardingProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Глобально уникальные id пользователей без IDENTITY-колонки:
+ * 41 бит — миллисекунды от EPOCH, 10 бит — nodeId экземпляра, 12 бит — счётчик в пределах миллисекунды.
+ * Id известен до записи, поэтому по нему сразу выбирается шард.
+ */
+@Component
+public class UserIdGenerator {
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    private long lastMillis = -1;
+    private long sequence;
+
+    public UserIdGenerator(ShardingProperties sharding) {
+        // Значения по умолчанию нет: экземпляры с одинаковым nodeId выдают одинаковые id
+        if (sharding.getNodeId() == null) {
+            throw new IllegalStateException("sharding.node-id (SHARD_NODE_ID) must be set and unique per instance");
+        }
+        if (sharding.getNodeId() < 0 || sharding.getNodeId() > MAX_NODE) {
+            throw new IllegalArgumentException("sharding.node-id must be between 0 and " + MAX_NODE);
+        }
+        this.nodeId = sharding.getNodeId();
+    }
+
+    public synchronized long nextId() {
+        long now = System.currentTimeMillis();
+        if (now < lastMillis) {
+            // Часы ушли назад — продолжаем с последней выданной миллисекунды
+            now = lastMillis;
+        }
+        if (now == lastMillis) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                while (now <= lastMillis) {
+                    now = System.currentTimeMillis();
+                }
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = now;
+        return ((now - EPOCH) << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+}
\ No newline at end of file
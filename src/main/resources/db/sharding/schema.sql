@@ -0,0 +1,37 @@
+-- Схема одного шарда (PostgreSQL / H2)
+CREATE TABLE IF NOT EXISTS users (
+    id         BIGINT       PRIMARY KEY,
+    name       VARCHAR(255) NOT NULL,
+    email      VARCHAR(255) NOT NULL UNIQUE,
+    age        INTEGER,
+    created_at TIMESTAMP    NOT NULL,
+    updated_at TIMESTAMP    NOT NULL
+);
+-- Таблицы, созданные до появления ленты изменений: updated_at = created_at
+ALTER TABLE users ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP;
+CREATE INDEX IF NOT EXISTS idx_users_updated_at ON users (updated_at, id);
+UPDATE users SET updated_at = created_at WHERE updated_at IS NULL;
+ALTER TABLE users ALTER COLUMN updated_at SET NOT NULL;
+
+CREATE TABLE IF NOT EXISTS user_tombstones (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id    BIGINT       NOT NULL,
+    email      VARCHAR(255) NOT NULL,
+    deleted_at TIMESTAMP    NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_user_tombstones_deleted_at ON user_tombstones (deleted_at, user_id);
+
+CREATE TABLE IF NOT EXISTS user_email_index (
+    email      VARCHAR(255) PRIMARY KEY,
+    user_id    BIGINT       NOT NULL,
+    claimed_at TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    pending    BOOLEAN      NOT NULL DEFAULT FALSE
+);
+ALTER TABLE user_email_index ADD COLUMN IF NOT EXISTS claimed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+-- pending: email занят, а запись пользователя ещё не подтверждена; сверка смотрит только такие строки
+ALTER TABLE user_email_index ADD COLUMN IF NOT EXISTS pending BOOLEAN NOT NULL DEFAULT FALSE;
+CREATE INDEX IF NOT EXISTS idx_user_email_index_pending ON user_email_index (pending, claimed_at);
+-- Один шард: пользователи, созданные до индекса email (для нескольких шардов см. ShardingProperties)
+INSERT INTO user_email_index (email, user_id, pending)
+SELECT u.email, u.id, FALSE FROM users u
+WHERE NOT EXISTS (SELECT 1 FROM user_email_index e WHERE e.email = u.email);
\ No newline at end of file
@@ -4,15 +4,20 @@ import com.example.dto.UserResponseDto;
 import com.example.service.UserService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
@@ -62,6 +67,29 @@ public class UserControllerHateoasTest {
                 .contains("/api/users/1");
     }
 
+    @Test
+    void getUserById_CborShouldFormatDatesLikeJson() throws Exception {
+        UserResponseDto user = UserResponseDto.builder()
+                .id(1L)
+                .name("John Doe")
+                .email("john@example.com")
+                .age(30)
+                .createdAt(LocalDateTime.of(2024, 5, 1, 12, 30))
+                .build();
+
+        when(userService.getUserById(1L)).thenReturn(user);
+
+        byte[] cbor = mockMvc.perform(get("/api/users/1")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode root = new ObjectMapper(new CBORFactory()).readTree(cbor);
+        assertThat(root.get("createdAt").isTextual()).isTrue();
+        assertThat(root.get("createdAt").asText()).isEqualTo(objectMapper.convertValue(user.getCreatedAt(), String.class));
+        assertThat(root.has("_links")).isFalse();
+    }
+
     @Test
     void getAllUsers_ShouldReturnCollectionWithLinks() throws Exception {
         mockMvc.perform(get("/api/users")
@@ -70,4 +98,32 @@ public class UserControllerHateoasTest {
                 .andExpect(jsonPath("$._links.self.href").exists())
                 .andExpect(jsonPath("$._links.create.href").exists());
     }
+
+    @Test
+    void getAllUsers_CborShouldBeSmallerThanHalJson() throws Exception {
+        List<UserResponseDto> users = LongStream.rangeClosed(1, 100)
+                .mapToObj(id -> UserResponseDto.builder()
+                        .id(id)
+                        .name("User " + id)
+                        .email("user" + id + "@example.com")
+                        .age(30)
+                        .createdAt(LocalDateTime.now())
+                        .build())
+                .collect(Collectors.toList());
+
+        when(userService.getAllUsers()).thenReturn(users);
+
+        byte[] hal = mockMvc.perform(get("/api/users")
+                        .accept(MediaTypes.HAL_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        byte[] cbor = mockMvc.perform(get("/api/users")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(cbor.length).isLessThan(hal.length * 2 / 3);
+    }
 }
\ No newline at end of file
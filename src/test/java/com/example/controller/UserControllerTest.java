@@ -1,5 +1,9 @@
 package com.example.controller;
 
+import com.example.dto.DeletedUserDto;
+import com.example.dto.UserChangesDto;
+import com.example.dto.UserLookupRequestDto;
+import com.example.dto.UserLookupResponseDto;
 import com.example.dto.UserRequestDto;
 import com.example.dto.UserResponseDto;
 import com.example.service.UserService;
@@ -15,6 +19,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -96,6 +101,75 @@ class UserControllerTest {
         verify(userService).getUserById(1L);
     }
 
+    @Test
+    void getChanges_ShouldReturnDeltaAfterWatermark() throws Exception {
+        LocalDateTime since = LocalDateTime.of(2026, 1, 1, 12, 0);
+        LocalDateTime deletedAt = since.plusMinutes(5);
+        UserChangesDto changes = UserChangesDto.builder()
+                .updated(List.of(userResponseDto))
+                .deleted(List.of(DeletedUserDto.builder()
+                        .userId(2L)
+                        .email("jane@example.com")
+                        .deletedAt(deletedAt)
+                        .build()))
+                .watermark(deletedAt)
+                .watermarkId(2L)
+                .hasMore(false)
+                .build();
+        when(userService.getChanges(since, 7L, 100)).thenReturn(changes);
+
+        mockMvc.perform(get("/api/users/changes")
+                        .param("since", "2026-01-01T12:00:00")
+                        .param("afterId", "7")
+                        .param("limit", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated", hasSize(1)))
+                .andExpect(jsonPath("$.updated[0].email", is("john@example.com")))
+                .andExpect(jsonPath("$.deleted[0].userId", is(2)))
+                .andExpect(jsonPath("$.watermarkId", is(2)))
+                .andExpect(jsonPath("$.hasMore", is(false)));
+
+        verify(userService).getChanges(since, 7L, 100);
+    }
+
+    @Test
+    void lookupUsers_ShouldReturnFoundAndMissing() throws Exception {
+        UserLookupRequestDto lookupRequest = UserLookupRequestDto.builder()
+                .ids(List.of(1L, 2L))
+                .emails(List.of("john@example.com"))
+                .build();
+        UserLookupResponseDto lookupResponse = UserLookupResponseDto.builder()
+                .byId(Map.of(1L, userResponseDto))
+                .byEmail(Map.of("john@example.com", userResponseDto))
+                .missingIds(List.of(2L))
+                .missingEmails(List.of())
+                .build();
+        when(userService.lookupUsers(List.of(1L, 2L), List.of("john@example.com"))).thenReturn(lookupResponse);
+
+        mockMvc.perform(post("/api/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(lookupRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.byId['1'].email", is("john@example.com")))
+                .andExpect(jsonPath("$.byEmail['john@example.com'].id", is(1)))
+                .andExpect(jsonPath("$.missingIds", contains(2)))
+                .andExpect(jsonPath("$.byId['1']._links").doesNotExist());
+    }
+
+    @Test
+    void lookupUsers_WhenInvalidEmail_ShouldReturnBadRequest() throws Exception {
+        UserLookupRequestDto lookupRequest = UserLookupRequestDto.builder()
+                .emails(List.of("not-an-email"))
+                .build();
+
+        mockMvc.perform(post("/api/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(lookupRequest)))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, never()).lookupUsers(any(), any());
+    }
+
     @Test
     void deleteUser_ShouldReturnNoContent() throws Exception {
         doNothing().when(userService).deleteUser(1L);
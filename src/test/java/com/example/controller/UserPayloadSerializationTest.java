@@ -0,0 +1,130 @@
+package com.example.controller;
+
+import com.example.dto.UserResponseDto;
+import com.example.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Размер ответа getAllUsers (без сжатия и gzip) и время сериализации
+ * для HAL JSON, CBOR и Smile — теми же конвертерами, что использует MVC.
+ * Запуск: mvn test -Dtest=UserPayloadSerializationTest -Dbenchmark.serialization=true
+ */
+@WebMvcTest(UserController.class)
+@EnabledIfSystemProperty(named = "benchmark.serialization", matches = "true")
+@Slf4j
+class UserPayloadSerializationTest {
+
+    private static final int USERS = 500;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1000;
+
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+
+    @MockBean
+    private UserService userService;
+
+    @Test
+    void compareRepresentations() throws IOException {
+        CollectionModel<EntityModel<UserResponseDto>> model = allUsersModel();
+
+        Measurement hal = measure(model, MediaTypes.HAL_JSON);
+        Measurement cbor = measure(model, MediaType.APPLICATION_CBOR);
+        Measurement smile = measure(model, MediaType.valueOf("application/x-jackson-smile"));
+
+        log.info("{} users: {}", USERS, hal);
+        log.info("{} users: {} ({}% of HAL raw, {}% gzip)", USERS, cbor,
+                cbor.rawBytes() * 100 / hal.rawBytes(), cbor.gzipBytes() * 100 / hal.gzipBytes());
+        log.info("{} users: {} ({}% of HAL raw, {}% gzip)", USERS, smile,
+                smile.rawBytes() * 100 / hal.rawBytes(), smile.gzipBytes() * 100 / hal.gzipBytes());
+    }
+
+    private Measurement measure(Object body, MediaType mediaType) throws IOException {
+        HttpMessageConverter<Object> converter = converterFor(body.getClass(), mediaType);
+
+        byte[] payload = write(converter, body, mediaType);
+        for (int i = 0; i < WARMUP; i++) {
+            write(converter, body, mediaType);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            write(converter, body, mediaType);
+        }
+        double micros = (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+
+        return new Measurement(mediaType, payload.length, gzip(payload).length, micros);
+    }
+
+    @SuppressWarnings("unchecked")
+    private HttpMessageConverter<Object> converterFor(Class<?> type, MediaType mediaType) {
+        return handlerAdapter.getMessageConverters().stream()
+                .filter(converter -> converter.canWrite(type, mediaType))
+                .map(converter -> (HttpMessageConverter<Object>) converter)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No converter for " + mediaType));
+    }
+
+    private static byte[] write(HttpMessageConverter<Object> converter, Object body, MediaType mediaType) throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(body, mediaType, message);
+        return message.getBodyAsBytes();
+    }
+
+    private static byte[] gzip(byte[] payload) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(payload);
+        }
+        return out.toByteArray();
+    }
+
+    // Та же структура, что строит UserController.getAllUsers
+    private static CollectionModel<EntityModel<UserResponseDto>> allUsersModel() {
+        List<EntityModel<UserResponseDto>> users = LongStream.rangeClosed(1, USERS)
+                .mapToObj(id -> UserResponseDto.builder()
+                        .id(id)
+                        .name("User " + id)
+                        .email("user" + id + "@example.com")
+                        .age(30)
+                        .createdAt(LocalDateTime.now())
+                        .updatedAt(LocalDateTime.now())
+                        .build())
+                .map(user -> EntityModel.of(user,
+                        Link.of("http://localhost/api/users/" + user.getId()).withSelfRel(),
+                        Link.of("http://localhost/api/users/email/" + user.getEmail()).withRel("byEmail")))
+                .collect(Collectors.toList());
+
+        return CollectionModel.of(users,
+                Link.of("http://localhost/api/users").withSelfRel(),
+                Link.of("http://localhost/api/users").withRel("create"));
+    }
+
+    private record Measurement(MediaType mediaType, int rawBytes, int gzipBytes, double microsPerWrite) {
+        @Override
+        public String toString() {
+            return String.format("%-30s raw %7d B, gzip %6d B, serialize %8.1f us",
+                    mediaType, rawBytes, gzipBytes, microsPerWrite);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,242 @@
+package com.example.service;
+
+import com.example.dto.UserLookupResponseDto;
+import com.example.dto.UserRequestDto;
+import com.example.dto.UserResponseDto;
+import com.example.entity.User;
+import com.example.entity.UserEmailIndex;
+import com.example.exception.UserNotFoundException;
+import com.example.repository.UserEmailIndexRepository;
+import com.example.repository.UserRepository;
+import com.example.sharding.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false",
+        "sharding.node-id=0",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "sharding.init-schema=true",
+        "spring.datasource.hikari.maximum-pool-size=4",
+        "email-claims.grace-period=0s",
+        "sharding.shards[0].name=shard-0",
+        "sharding.shards[0].url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+        "sharding.shards[1].name=shard-1",
+        "sharding.shards[1].url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "sharding.shards[2].name=shard-2",
+        "sharding.shards[2].url=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1"
+})
+class ShardedUserServiceTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserEmailIndexRepository userEmailIndexRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private EmailClaimReconciler emailClaimReconciler;
+
+    @MockBean
+    private UserEventPublisher userEventPublisher;
+
+    @Test
+    void crud_ShouldRouteUsersAcrossShards() {
+        List<Long> ids = new ArrayList<>();
+        IntStream.range(0, 30).forEach(i -> ids.add(userService.createUser(request("shard" + i + "@example.com")).getId()));
+
+        Set<Integer> usedShards = new HashSet<>();
+        for (Long id : ids) {
+            int shard = shardRouter.shardForUserId(id);
+            assertThat(shardRouter.read(shard, () -> userRepository.existsById(id))).isTrue();
+            usedShards.add(shard);
+        }
+        assertThat(usedShards).hasSize(3);
+        assertThat(new HashSet<>(ids)).hasSize(ids.size());
+
+        assertThat(userService.getAllUsers())
+                .extracting(UserResponseDto::getId)
+                .containsAll(ids);
+        assertThat(userService.getUserByEmail("shard7@example.com").getId()).isEqualTo(ids.get(7));
+
+        userService.updateUser(ids.get(7), request("renamed7@example.com"));
+        assertThat(userService.getUserByEmail("renamed7@example.com").getId()).isEqualTo(ids.get(7));
+        assertThatThrownBy(() -> userService.getUserByEmail("shard7@example.com"))
+                .isInstanceOf(UserNotFoundException.class);
+
+        userService.deleteUser(ids.get(0));
+        assertThatThrownBy(() -> userService.getUserById(ids.get(0)))
+                .isInstanceOf(UserNotFoundException.class);
+    }
+
+    @Test
+    void lookupUsers_ShouldResolveIdsAndEmailsAcrossShards() {
+        List<Long> ids = new ArrayList<>();
+        IntStream.range(0, 20).forEach(i -> ids.add(userService.createUser(request("lookup" + i + "@example.com")).getId()));
+
+        UserLookupResponseDto result = userService.lookupUsers(
+                List.of(ids.get(0), ids.get(5), -1L),
+                List.of("lookup3@example.com", "lookup19@example.com", "absent@example.com"));
+
+        assertThat(result.getById()).containsOnlyKeys(ids.get(0), ids.get(5));
+        assertThat(result.getMissingIds()).containsExactly(-1L);
+        assertThat(result.getByEmail()).containsOnlyKeys("lookup3@example.com", "lookup19@example.com");
+        assertThat(result.getByEmail().get("lookup19@example.com").getId()).isEqualTo(ids.get(19));
+        assertThat(result.getMissingEmails()).containsExactly("absent@example.com");
+    }
+
+    @Test
+    void lookupUsers_WhenEmailChanged_ShouldNotResolveOldEmail() {
+        Long id = userService.createUser(request("lookup-old@example.com")).getId();
+        userService.updateUser(id, request("lookup-new@example.com"));
+        // Сбой до releaseEmail(старый): индекс всё ещё указывает старый email на этого пользователя
+        claimIndexEntry("lookup-old@example.com", id);
+
+        UserLookupResponseDto result = userService.lookupUsers(
+                List.of(), List.of("lookup-old@example.com", "lookup-new@example.com"));
+
+        assertThat(result.getByEmail()).containsOnlyKeys("lookup-new@example.com");
+        assertThat(result.getByEmail().get("lookup-new@example.com").getId()).isEqualTo(id);
+        assertThat(result.getMissingEmails()).containsExactly("lookup-old@example.com");
+    }
+
+    @Test
+    void createUser_WhenEmailTaken_ShouldFail() {
+        userService.createUser(request("taken@example.com"));
+
+        assertThatThrownBy(() -> userService.createUser(request("taken@example.com")))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void lookupUsers_WhenMoreReadersThanShards_ShouldServeAllConcurrently() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        IntStream.range(0, 30).forEach(i -> ids.add(userService.createUser(request("load" + i + "@example.com")).getId()));
+        List<String> emails = IntStream.range(0, 30).mapToObj(i -> "load" + i + "@example.com").collect(Collectors.toList());
+
+        int readers = 32;
+        ExecutorService clients = Executors.newFixedThreadPool(readers);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int reader = 0; reader < readers; reader++) {
+                tasks.add(() -> {
+                    int found = 0;
+                    for (int round = 0; round < 20; round++) {
+                        UserLookupResponseDto result = userService.lookupUsers(ids, emails);
+                        found += result.getById().size() + result.getByEmail().size();
+                    }
+                    return found;
+                });
+            }
+            for (Future<Integer> future : clients.invokeAll(tasks, 60, TimeUnit.SECONDS)) {
+                assertThat(future.isCancelled()).isFalse();
+                assertThat(future.get()).isEqualTo(20 * (ids.size() + emails.size()));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void reconcile_ShouldReleaseOnlyOrphanedEmailClaims() {
+        Long ownerId = userService.createUser(request("owned@example.com")).getId();
+        // Так выглядит email, занятый перед падением процесса: пользователя с таким id нет
+        shardRouter.write(shardRouter.shardForEmail("orphan@example.com"), () -> userEmailIndexRepository.save(
+                UserEmailIndex.builder().email("orphan@example.com").userId(-1L).build()));
+
+        emailClaimReconciler.reconcile();
+
+        assertThat(shardRouter.read(shardRouter.shardForEmail("orphan@example.com"),
+                () -> userEmailIndexRepository.existsById("orphan@example.com"))).isFalse();
+        assertThat(userService.getUserByEmail("owned@example.com").getId()).isEqualTo(ownerId);
+        assertThat(shardRouter.read(shardRouter.shardForEmail("owned@example.com"),
+                () -> userEmailIndexRepository.findById("owned@example.com")).orElseThrow().isPending()).isFalse();
+        assertThat(userService.createUser(request("orphan@example.com")).getEmail()).isEqualTo("orphan@example.com");
+    }
+
+    @Test
+    void reconcile_WhenCrashedBeforeReleasingOldEmail_ShouldReleaseIt() {
+        Long id = userService.createUser(request("before-crash@example.com")).getId();
+        int emailShard = shardRouter.shardForEmail("before-crash@example.com");
+        // Смена email дошла до записи пользователя, но не до releaseEmail(старый)
+        claimIndexEntry("after-crash@example.com", id);
+        shardRouter.write(emailShard, () -> userEmailIndexRepository.reopenClaim(
+                "before-crash@example.com", id, LocalDateTime.now().minusMinutes(1)));
+        renameDirectly(id, "after-crash@example.com");
+
+        emailClaimReconciler.reconcile();
+
+        assertThat(shardRouter.read(emailShard, () -> userEmailIndexRepository.existsById("before-crash@example.com")))
+                .isFalse();
+        assertThat(userService.getUserByEmail("after-crash@example.com").getId()).isEqualTo(id);
+    }
+
+    @Test
+    void getUserByEmail_WhenClaimIsStale_ShouldReturnNotFound() {
+        Long id = userService.createUser(request("stale-old@example.com")).getId();
+        // Индекс ещё указывает старый email на пользователя, у которого уже новый
+        renameDirectly(id, "stale-new@example.com");
+
+        assertThatThrownBy(() -> userService.getUserByEmail("stale-old@example.com"))
+                .isInstanceOf(UserNotFoundException.class);
+    }
+
+    @Test
+    void deleteByEmailAndUserId_WhenOwnedByAnotherUser_ShouldKeepClaim() {
+        Long ownerId = userService.createUser(request("keep@example.com")).getId();
+        int shard = shardRouter.shardForEmail("keep@example.com");
+
+        int deleted = shardRouter.write(shard,
+                () -> userEmailIndexRepository.deleteByEmailAndUserId("keep@example.com", ownerId + 1));
+
+        assertThat(deleted).isZero();
+        assertThat(userService.getUserByEmail("keep@example.com").getId()).isEqualTo(ownerId);
+    }
+
+    private void claimIndexEntry(String email, Long userId) {
+        shardRouter.write(shardRouter.shardForEmail(email), () -> userEmailIndexRepository.save(
+                UserEmailIndex.builder().email(email).userId(userId).pending(false).build()));
+    }
+
+    private void renameDirectly(Long id, String email) {
+        shardRouter.write(shardRouter.shardForUserId(id), () -> {
+            User user = userRepository.findById(id).orElseThrow();
+            user.setEmail(email);
+            return userRepository.save(user);
+        });
+    }
+
+    private UserRequestDto request(String email) {
+        return UserRequestDto.builder()
+                .name("Sharded User")
+                .email(email)
+                .age(25)
+                .build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package com.example.service;
+
+import com.example.dto.DeletedUserDto;
+import com.example.dto.UserChangesDto;
+import com.example.dto.UserRequestDto;
+import com.example.dto.UserResponseDto;
+import com.example.sharding.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false",
+        "sharding.node-id=0",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "user-changes.safety-lag=0s",
+        "sharding.init-schema=true",
+        "sharding.shards[0].name=feed-0",
+        "sharding.shards[0].url=jdbc:h2:mem:feed0;DB_CLOSE_DELAY=-1",
+        "sharding.shards[1].name=feed-1",
+        "sharding.shards[1].url=jdbc:h2:mem:feed1;DB_CLOSE_DELAY=-1",
+        "sharding.shards[2].name=feed-2",
+        "sharding.shards[2].url=jdbc:h2:mem:feed2;DB_CLOSE_DELAY=-1"
+})
+class UserChangesFeedTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private UserEventPublisher userEventPublisher;
+
+    @Autowired
+    private UpdatedAtBackfill updatedAtBackfill;
+
+    @Test
+    void getChanges_ShouldPageThroughInterleavedUpdatesAndDeletesInWatermarkOrder() {
+        LocalDateTime t1 = LocalDateTime.of(2020, 1, 1, 10, 0);
+        LocalDateTime t2 = t1.plusMinutes(1);
+        // Ожидаемый порядок по (время, id): 101 upd, 102 del, 103 upd | 104 del, 105 upd
+        insertUser(101L, t1);
+        insertTombstone(102L, t1);
+        insertUser(103L, t1);
+        insertTombstone(104L, t2);
+        insertUser(105L, t2);
+
+        UserChangesDto first = userService.getChanges(t1.minusSeconds(1), 0L, 2);
+        assertThat(first.getUpdated()).extracting(UserResponseDto::getId).containsExactly(101L);
+        assertThat(first.getDeleted()).extracting(DeletedUserDto::getUserId).containsExactly(102L);
+        assertThat(first.getWatermark()).isEqualTo(t1);
+        assertThat(first.getWatermarkId()).isEqualTo(102L);
+        assertThat(first.isHasMore()).isTrue();
+
+        UserChangesDto second = userService.getChanges(first.getWatermark(), first.getWatermarkId(), 2);
+        assertThat(second.getUpdated()).extracting(UserResponseDto::getId).containsExactly(103L);
+        assertThat(second.getDeleted()).extracting(DeletedUserDto::getUserId).containsExactly(104L);
+        assertThat(second.getWatermark()).isEqualTo(t2);
+        assertThat(second.getWatermarkId()).isEqualTo(104L);
+        assertThat(second.isHasMore()).isTrue();
+
+        UserChangesDto third = userService.getChanges(second.getWatermark(), second.getWatermarkId(), 2);
+        assertThat(third.getUpdated()).extracting(UserResponseDto::getId).startsWith(105L);
+        assertThat(third.getDeleted()).extracting(DeletedUserDto::getUserId).doesNotContain(102L, 104L);
+    }
+
+    @Test
+    void getChanges_ShouldHoldBackRowsNewerThanSafetyCutoff() {
+        LocalDateTime future = LocalDateTime.now().plusMinutes(10);
+        insertUser(201L, future);
+
+        UserChangesDto changes = userService.getChanges(LocalDateTime.now().minusMinutes(1), 0L, 1000);
+
+        assertThat(changes.getUpdated()).extracting(UserResponseDto::getId).doesNotContain(201L);
+    }
+
+    @Test
+    void deleteUser_ShouldWriteTombstoneToFeed() {
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+        Long id = userService.createUser(UserRequestDto.builder()
+                .name("Feed User")
+                .email("deleted-feed@example.com")
+                .age(40)
+                .build()).getId();
+
+        userService.deleteUser(id);
+
+        UserChangesDto changes = userService.getChanges(before, 0L, 1000);
+        assertThat(changes.getDeleted())
+                .anySatisfy(deleted -> {
+                    assertThat(deleted.getUserId()).isEqualTo(id);
+                    assertThat(deleted.getEmail()).isEqualTo("deleted-feed@example.com");
+                });
+        assertThat(changes.getUpdated()).extracting(UserResponseDto::getId).doesNotContain(id);
+    }
+
+    @Test
+    void backfill_ShouldExposeUsersCreatedBeforeFeed() {
+        long id = 301L;
+        LocalDateTime createdAt = LocalDateTime.of(2019, 6, 1, 9, 0);
+        int shard = shardRouter.shardForUserId(id);
+        // Строка в том виде, в каком она была до появления updated_at
+        shardRouter.write(shard, () -> {
+            jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN updated_at SET NULL");
+            return jdbcTemplate.update(
+                    "INSERT INTO users (id, name, email, age, created_at) VALUES (?, ?, ?, ?, ?)",
+                    id, "Legacy User", "legacy" + id + "@example.com", 20, createdAt);
+        });
+        try {
+            updatedAtBackfill.backfill();
+        } finally {
+            shardRouter.write(shard, () -> {
+                jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN updated_at SET NOT NULL");
+                return null;
+            });
+        }
+
+        UserChangesDto changes = userService.getChanges(createdAt.minusSeconds(1), 0L, 1);
+        assertThat(changes.getUpdated()).extracting(UserResponseDto::getId).containsExactly(id);
+        assertThat(changes.getWatermark()).isEqualTo(createdAt);
+    }
+
+    private void insertUser(long id, LocalDateTime at) {
+        shardRouter.write(shardRouter.shardForUserId(id), () -> jdbcTemplate.update(
+                "INSERT INTO users (id, name, email, age, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                id, "Feed User", "feed" + id + "@example.com", 20, at, at));
+    }
+
+    private void insertTombstone(long userId, LocalDateTime at) {
+        shardRouter.write(shardRouter.shardForUserId(userId), () -> jdbcTemplate.update(
+                "INSERT INTO user_tombstones (user_id, email, deleted_at) VALUES (?, ?, ?)",
+                userId, "feed" + userId + "@example.com", at));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,248 @@
+package com.example.service;
+
+import com.example.dto.UserEventDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class UserEventPublisherTest {
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, UserEventDto> kafkaTemplate = mock(KafkaTemplate.class);
+
+    @TempDir
+    Path tempDir;
+
+    private UserEventPublisher publisher;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (publisher != null) {
+            publisher.stop();
+        }
+    }
+
+    @Test
+    void publish_WhenQueueFullAndDropPolicy_ShouldCountDropped() {
+        publisher = publisher(1, UserEventPublisher.OverflowPolicy.DROP);
+
+        publisher.publish(event(1L));
+        publisher.publish(event(2L));
+
+        assertThat(publisher.getDroppedCount()).isEqualTo(1);
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    void publish_WhenQueueFullAndSpillPolicy_ShouldWriteToDisk() throws Exception {
+        publisher = publisher(1, UserEventPublisher.OverflowPolicy.SPILL);
+
+        publisher.publish(event(1L));
+        publisher.publish(event(2L));
+
+        assertThat(publisher.getSpilledCount()).isEqualTo(1);
+        assertThat(Files.readAllLines(tempDir.resolve("spill.jsonl"))).hasSize(1);
+    }
+
+    @Test
+    void publish_WhenSendFails_ShouldRetry() throws Exception {
+        CompletableFuture<SendResult<String, UserEventDto>> failure =
+                CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"));
+        CompletableFuture<SendResult<String, UserEventDto>> success =
+                CompletableFuture.completedFuture(null);
+        when(kafkaTemplate.send(anyString(), anyString(), any(UserEventDto.class)))
+                .thenReturn(failure)
+                .thenReturn(success);
+
+        publisher = publisher(10, UserEventPublisher.OverflowPolicy.DROP);
+        publisher.start();
+        publisher.publish(event(1L));
+
+        await(() -> publisher.getSentCount() == 1);
+
+        assertThat(publisher.getSentCount()).isEqualTo(1);
+        assertThat(publisher.getFailedCount()).isEqualTo(1);
+        verify(kafkaTemplate, times(2)).send(eq("aston-user-events"), eq("1"), any(UserEventDto.class));
+    }
+
+    @Test
+    void publish_WhenSendFails_ShouldKeepOrderForSameUser() throws Exception {
+        CompletableFuture<SendResult<String, UserEventDto>> failure =
+                CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"));
+        CompletableFuture<SendResult<String, UserEventDto>> success =
+                CompletableFuture.completedFuture(null);
+        when(kafkaTemplate.send(anyString(), anyString(), any(UserEventDto.class)))
+                .thenReturn(failure)
+                .thenReturn(success);
+
+        publisher = publisher(10, UserEventPublisher.OverflowPolicy.DROP);
+        publisher.publish(event(1L, "CREATED"));
+        publisher.publish(event(1L, "DELETED"));
+        publisher.start();
+
+        await(() -> publisher.getSentCount() == 2);
+
+        InOrder inOrder = inOrder(kafkaTemplate);
+        inOrder.verify(kafkaTemplate, times(2)).send(anyString(), eq("1"), argThat(e -> "CREATED".equals(e.getEventType())));
+        inOrder.verify(kafkaTemplate).send(anyString(), eq("1"), argThat(e -> "DELETED".equals(e.getEventType())));
+    }
+
+    @Test
+    void stop_ShouldFlushQueuedEvents() throws Exception {
+        when(kafkaTemplate.send(anyString(), anyString(), any(UserEventDto.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        publisher = publisher(10, UserEventPublisher.OverflowPolicy.DROP);
+        publisher.publish(event(1L));
+        publisher.publish(event(2L));
+        publisher.publish(event(3L));
+        publisher.start();
+        publisher.stop();
+
+        assertThat(publisher.getSentCount()).isEqualTo(3);
+        assertThat(publisher.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void start_WhenSpillFileExists_ShouldReplayItBeforeNewEvents() throws Exception {
+        when(kafkaTemplate.send(anyString(), anyString(), any(UserEventDto.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        Path spillFile = tempDir.resolve("spill.jsonl");
+        Files.writeString(spillFile, new ObjectMapper().writeValueAsString(event(1L, "CREATED")) + "\n");
+
+        publisher = publisher(10, UserEventPublisher.OverflowPolicy.SPILL);
+        publisher.publish(event(1L, "DELETED"));
+        publisher.start();
+
+        await(() -> publisher.getSentCount() == 2 && Files.notExists(spillFile));
+
+        InOrder inOrder = inOrder(kafkaTemplate);
+        inOrder.verify(kafkaTemplate).send(anyString(), eq("1"), argThat(e -> "CREATED".equals(e.getEventType())));
+        inOrder.verify(kafkaTemplate).send(anyString(), eq("1"), argThat(e -> "DELETED".equals(e.getEventType())));
+        assertThat(Files.notExists(spillFile)).isTrue();
+    }
+
+    @Test
+    void replay_WhenSendFails_ShouldKeepSpillFile() throws Exception {
+        when(kafkaTemplate.send(anyString(), anyString(), any(UserEventDto.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+        Path spillFile = tempDir.resolve("spill.jsonl");
+        Files.writeString(spillFile, new ObjectMapper().writeValueAsString(event(1L)) + "\n");
+
+        publisher = publisher(10, UserEventPublisher.OverflowPolicy.SPILL);
+        publisher.start();
+
+        await(() -> publisher.getFailedCount() >= 2);
+
+        assertThat(publisher.getSentCount()).isZero();
+        assertThat(Files.readAllLines(spillFile)).hasSize(1);
+    }
+
+    @Test
+    void publish_WhenErrorIsNotRetriable_ShouldDropAndContinue() throws Exception {
+        when(kafkaTemplate.send(anyString(), eq("1"), any(UserEventDto.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RecordTooLargeException("too large")));
+        when(kafkaTemplate.send(anyString(), eq("2"), any(UserEventDto.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        publisher = publisher(10, UserEventPublisher.OverflowPolicy.SPILL);
+        publisher.publish(event(1L));
+        publisher.publish(event(2L));
+        publisher.start();
+
+        await(() -> publisher.getSentCount() == 1 && publisher.getDroppedCount() == 1);
+
+        assertThat(publisher.getSentCount()).isEqualTo(1);
+        assertThat(publisher.getDroppedCount()).isEqualTo(1);
+        verify(kafkaTemplate, times(1)).send(anyString(), eq("1"), any(UserEventDto.class));
+        assertThat(tempDir.resolve("spill.jsonl")).doesNotExist();
+    }
+
+    @Test
+    void stop_WhenBrokerDoesNotAnswer_ShouldSpillUnconfirmedEvents() throws Exception {
+        when(kafkaTemplate.send(anyString(), anyString(), any(UserEventDto.class)))
+                .thenReturn(new CompletableFuture<>());
+
+        publisher = publisher(10, UserEventPublisher.OverflowPolicy.SPILL, 300);
+        publisher.publish(event(1L, "CREATED"));
+        publisher.publish(event(1L, "DELETED"));
+        publisher.start();
+        await(() -> mockingDetails(kafkaTemplate).getInvocations().size() == 1);
+        publisher.stop();
+
+        assertThat(Files.readAllLines(tempDir.resolve("spill.jsonl")))
+                .hasSize(2)
+                .satisfies(lines -> {
+                    assertThat(lines.get(0)).contains("CREATED");
+                    assertThat(lines.get(1)).contains("DELETED");
+                });
+    }
+
+    @Test
+    void stop_WhenDispatcherIsStuckInSend_ShouldSpillInFlightAndQueuedEvents() throws Exception {
+        when(kafkaTemplate.send(anyString(), anyString(), any(UserEventDto.class))).thenAnswer(invocation -> {
+            // Так send блокируется на max.block.ms, пока нет метаданных брокера
+            Thread.sleep(3000);
+            return CompletableFuture.completedFuture(null);
+        });
+
+        publisher = publisher(10, UserEventPublisher.OverflowPolicy.SPILL, 300);
+        publisher.publish(event(1L, "CREATED"));
+        publisher.publish(event(1L, "DELETED"));
+        publisher.start();
+        await(() -> mockingDetails(kafkaTemplate).getInvocations().size() == 1);
+        publisher.stop();
+
+        assertThat(Files.readAllLines(tempDir.resolve("spill.jsonl")))
+                .hasSize(2)
+                .satisfies(lines -> {
+                    assertThat(lines.get(0)).contains("CREATED");
+                    assertThat(lines.get(1)).contains("DELETED");
+                });
+    }
+
+    private UserEventPublisher publisher(int capacity, UserEventPublisher.OverflowPolicy policy) {
+        return publisher(capacity, policy, 1000);
+    }
+
+    private UserEventPublisher publisher(int capacity, UserEventPublisher.OverflowPolicy policy, long shutdownTimeoutMs) {
+        return new UserEventPublisher(kafkaTemplate, new ObjectMapper(), capacity, policy, 0, 3, 1, shutdownTimeoutMs,
+                tempDir.resolve("spill.jsonl").toString());
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private UserEventDto event(Long userId) {
+        return event(userId, "CREATED");
+    }
+
+    private UserEventDto event(Long userId, String eventType) {
+        return UserEventDto.builder()
+                .eventType(eventType)
+                .email("user" + userId + "@example.com")
+                .name("User " + userId)
+                .userId(userId)
+                .build();
+    }
+}
\ No newline at end of file
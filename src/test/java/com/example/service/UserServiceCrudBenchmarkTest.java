@@ -0,0 +1,163 @@
+package com.example.service;
+
+import com.example.dto.UserRequestDto;
+import com.example.dto.UserResponseDto;
+import com.example.entity.User;
+import com.example.repository.UserRepository;
+import com.example.sharding.ShardRouter;
+import com.example.sharding.UserIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Замер пропускной способности CRUD на локальной БД.
+ * Запуск:
+ * mvn test -Dtest=UserServiceCrudBenchmarkTest -Dbenchmark.db.url=jdbc:postgresql://localhost:5432/users
+ * Для сравнения с ненастроенным вариантом добавить
+ * -Dspring.jpa.properties.hibernate.jdbc.batch_size=1
+ * -Dspring.jpa.properties.hibernate.order_inserts=false
+ * -Dspring.jpa.properties.hibernate.order_updates=false
+ * -Dsharding.postgresql-properties.prepareThreshold=0
+ * -Dsharding.postgresql-properties.reWriteBatchedInserts=false
+ * <p>
+ * crudThroughput — по одной строке на транзакцию, как в REST API: на него влияют пул и кэш prepared statements.
+ * bulkThroughput — по BULK_CHUNK строк на транзакцию: здесь работают batch_size и order_inserts/order_updates.
+ */
+@SpringBootTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false",
+        "sharding.node-id=0",
+        "spring.datasource.url=${benchmark.db.url}",
+        "spring.jpa.hibernate.ddl-auto=update"
+})
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+@Slf4j
+class UserServiceCrudBenchmarkTest {
+
+    private static final int USERS = 2_000;
+    private static final int BULK_USERS = 20_000;
+    private static final int BULK_CHUNK = 500;
+
+    // Бенчмарк работает с одной БД (sharding.shards не задан)
+    private static final int SHARD = 0;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private UserIdGenerator userIdGenerator;
+
+    @MockBean
+    private UserEventPublisher userEventPublisher;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:}")
+    private String batchSize;
+
+    @Value("${spring.jpa.properties.hibernate.order_inserts:}")
+    private String orderInserts;
+
+    @Value("${spring.datasource.hikari.data-source-properties.prepareThreshold:}")
+    private String prepareThreshold;
+
+    @Test
+    void crudThroughput() {
+        String prefix = "bench-" + System.currentTimeMillis() + "-";
+        List<Long> ids = new ArrayList<>(USERS);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < USERS; i++) {
+            UserResponseDto created = userService.createUser(request(prefix + i + "@example.com", i));
+            ids.add(created.getId());
+        }
+        report("create", USERS, start);
+
+        start = System.nanoTime();
+        for (Long id : ids) {
+            userService.getUserById(id);
+        }
+        report("read", USERS, start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < USERS; i++) {
+            userService.updateUser(ids.get(i), request(prefix + i + "@example.com", i + 1));
+        }
+        report("update", USERS, start);
+
+        start = System.nanoTime();
+        for (Long id : ids) {
+            userService.deleteUser(id);
+        }
+        report("delete", USERS, start);
+    }
+
+    @Test
+    void bulkThroughput() {
+        String prefix = "bulk-" + System.currentTimeMillis() + "-";
+        List<List<Long>> chunks = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int from = 0; from < BULK_USERS; from += BULK_CHUNK) {
+            List<User> users = new ArrayList<>(BULK_CHUNK);
+            for (int i = from; i < from + BULK_CHUNK; i++) {
+                User user = User.builder()
+                        .name("Bulk User")
+                        .email(prefix + i + "@example.com")
+                        .age(20)
+                        .build();
+                user.setId(userIdGenerator.nextId());
+                users.add(user);
+            }
+            shardRouter.write(SHARD, () -> userRepository.saveAll(users));
+            chunks.add(users.stream().map(User::getId).collect(Collectors.toList()));
+        }
+        report("bulk insert", BULK_USERS, start);
+
+        start = System.nanoTime();
+        for (List<Long> chunk : chunks) {
+            shardRouter.write(SHARD, () -> {
+                List<User> users = userRepository.findByIdIn(chunk);
+                users.forEach(user -> user.setAge(user.getAge() + 1));
+                return users;
+            });
+        }
+        report("bulk update", BULK_USERS, start);
+
+        start = System.nanoTime();
+        for (List<Long> chunk : chunks) {
+            shardRouter.write(SHARD, () -> {
+                userRepository.deleteAll(userRepository.findByIdIn(chunk));
+                return null;
+            });
+        }
+        report("bulk delete", BULK_USERS, start);
+    }
+
+    private UserRequestDto request(String email, int age) {
+        return UserRequestDto.builder()
+                .name("Benchmark User")
+                .email(email)
+                .age(age + 1)
+                .build();
+    }
+
+    private void report(String operation, int rows, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        log.info(String.format("%-11s %6d rows in %6.2f s = %9.1f rows/s (batch_size=%s, order_inserts=%s, prepareThreshold=%s)",
+                operation, rows, seconds, rows / seconds, batchSize, orderInserts, prepareThreshold));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.example.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 10_000;
+
+    @Test
+    void shardFor_ShouldSpreadKeysEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(names(4), 128);
+        int[] counts = new int[4];
+
+        IntStream.range(0, KEYS).forEach(i -> counts[ring.shardFor("id:" + i)]++);
+
+        for (int count : counts) {
+            assertThat(count).isBetween(KEYS / 4 * 7 / 10, KEYS / 4 * 13 / 10);
+        }
+    }
+
+    @Test
+    void shardFor_WhenShardAdded_ShouldMoveOnlyFractionOfKeys() {
+        ConsistentHashRing four = new ConsistentHashRing(names(4), 128);
+        ConsistentHashRing five = new ConsistentHashRing(names(5), 128);
+
+        long moved = IntStream.range(0, KEYS)
+                .filter(i -> four.shardFor("id:" + i) != five.shardFor("id:" + i))
+                .count();
+
+        // В идеале переезжает 1/5 ключей; при hash % N было бы ~4/5
+        assertThat(moved).isLessThan(KEYS * 3 / 10);
+        IntStream.range(0, KEYS)
+                .filter(i -> four.shardFor("id:" + i) != five.shardFor("id:" + i))
+                .forEach(i -> assertThat(five.shardFor("id:" + i)).isEqualTo(4));
+    }
+
+    @Test
+    void shardFor_WhenShardsReordered_ShouldKeepOwners() {
+        List<String> names = names(4);
+        List<String> reordered = new ArrayList<>(names);
+        Collections.reverse(reordered);
+        ConsistentHashRing ring = new ConsistentHashRing(names, 128);
+        ConsistentHashRing reorderedRing = new ConsistentHashRing(reordered, 128);
+
+        IntStream.range(0, KEYS).forEach(i -> assertThat(reordered.get(reorderedRing.shardFor("id:" + i)))
+                .isEqualTo(names.get(ring.shardFor("id:" + i))));
+    }
+
+    @Test
+    void constructor_WhenNamesDuplicated_ShouldFail() {
+        assertThatThrownBy(() -> new ConsistentHashRing(List.of("users-a", "users-a"), 128))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<String> names(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "users-" + i).collect(Collectors.toList());
+    }
+}
\ No newline at end of file